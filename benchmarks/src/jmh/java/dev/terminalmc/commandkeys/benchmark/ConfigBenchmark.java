@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.benchmark;
+
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.config.Macro;
+import dev.terminalmc.commandkeys.config.Profile;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and saving a synthetic large config, from the JSON file or the
+ * binary cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConfigBenchmark {
+    @Param({"10", "100"})
+    public int profiles;
+
+    @Param({"100"})
+    public int macros;
+
+    @Param({"JSON", "CACHE"})
+    public String source;
+
+    @Setup
+    public void setup() {
+        Fixtures.install().record = false;
+        Config config = Fixtures.createConfig(profiles, macros, Macro.SendMode.SEND);
+        // Without the cache enabled, saving deletes any existing cache file
+        config.setBinaryCache(source.equals("CACHE"));
+        Config.save();
+        Config.flush();
+    }
+
+    /**
+     * Only the active profile is materialized, as at startup.
+     */
+    @Benchmark
+    public Config load() {
+        return Config.load();
+    }
+
+    @Benchmark
+    public Config loadAndMaterialize() {
+        Config config = Config.load();
+        for (Profile profile : config.getProfiles()) profile.materialize();
+        return config;
+    }
+
+    /**
+     * Snapshot and write, including the cache if enabled.
+     */
+    @Benchmark
+    public void save() {
+        Config.save();
+        Config.flush();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.benchmark;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.config.Macro;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import dev.terminalmc.commandkeys.util.KeybindUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Key-press dispatch against the active profile. Macros are in Cycle mode, so
+ * each triggered macro renders and sends one message immediately.
+ *
+ * <p>Keys are shared by {@code macros / 48} macros, so a bound key-press
+ * triggers more macros as the profile grows.</p>
+ */
+@State(Scope.Thread)
+public class KeybindBenchmark {
+    @Param({"10", "100", "1000"})
+    public int macros;
+
+    private InputConstants.Key bound;
+    private InputConstants.Key unbound;
+
+    @Setup
+    public void setup() {
+        Fixtures.install().record = false;
+        Fixtures.createConfig(1, macros, Macro.SendMode.CYCLE);
+        bound = Fixtures.KEYS[0];
+        unbound = InputConstants.Type.KEYSYM.getOrCreate(InputConstants.KEY_INSERT);
+    }
+
+    @Benchmark
+    public int bound() {
+        return KeybindUtil.handleKey(bound);
+    }
+
+    @Benchmark
+    public int unbound() {
+        return KeybindUtil.handleKey(unbound);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.benchmark;
+
+import com.mojang.datafixers.util.Pair;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import dev.terminalmc.commandkeys.util.ChatIndex;
+import dev.terminalmc.commandkeys.util.PlaceholderContext;
+import dev.terminalmc.commandkeys.util.PlaceholderUtil;
+import net.minecraft.network.chat.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compiling and rendering placeholder templates. Each render is treated as
+ * being in a new tick, so world queries are not shared between renders.
+ */
+@State(Scope.Thread)
+public class PlaceholderBenchmark {
+    @Param({"literal", "name", "coords", "position", "lookOffset", "recentChat", "mixed"})
+    public String message;
+
+    private String source;
+    private PlaceholderUtil.Template template;
+
+    @Setup
+    public void setup() {
+        Fixtures.install().record = false;
+        source = switch(message) {
+            case "literal" -> "/msg Player Hello, see you at spawn in five minutes!";
+            case "name" -> "%myname% is AFK";
+            case "coords" -> "/tp %x% %y% %z%";
+            case "position" -> "Meet me at %pos%";
+            case "lookOffset" -> "/setblock %lposF2% minecraft:stone";
+            case "recentChat" -> "Thanks %#<(Player5\\d)> %!";
+            case "mixed" -> "/msg %#<(Player9\\d)> % I'm at %pos% looking at %lpos%, %myname%";
+            default -> throw new IllegalArgumentException(message);
+        };
+        template = PlaceholderUtil.compile(source);
+        // Fill the chat index so that recent chat searches have to scan
+        ChatIndex.clear();
+        for (int i = 0; i < 100; i++) {
+            ChatIndex.add(Component.literal("<Player" + i + "> message number " + i));
+        }
+    }
+
+    @Benchmark
+    public Pair<String,Integer> render() {
+        PlaceholderContext.tick();
+        return template.render();
+    }
+
+    @Benchmark
+    public PlaceholderUtil.Template compile() {
+        return PlaceholderUtil.compile(source);
+    }
+}
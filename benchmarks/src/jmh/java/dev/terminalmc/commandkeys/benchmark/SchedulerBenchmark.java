@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.benchmark;
+
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import dev.terminalmc.commandkeys.util.MessageScheduler;
+import dev.terminalmc.commandkeys.util.PlaceholderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Ticking the message scheduler with many pending repeating messages, and
+ * scheduling and cancelling bursts of one-shot messages.
+ */
+@State(Scope.Thread)
+public class SchedulerBenchmark {
+    private static final int REPEAT_TICKS = 200;
+    private static final int BURST_SIZE = 8;
+
+    @Param({"100", "1000", "10000"})
+    public int pending;
+
+    private MessageScheduler scheduler;
+    private PlaceholderUtil.Template template;
+    private MessageScheduler.Group burst;
+
+    @Setup
+    public void setup() {
+        Fixtures.install().record = false;
+        scheduler = new MessageScheduler();
+        template = PlaceholderUtil.compile("/say %myname% is still here");
+        // Spread over the repeat interval, so each tick sends pending / 200
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        for (int i = 0; i < pending; i++) {
+            scheduler.schedule(group, 1 + i % REPEAT_TICKS, REPEAT_TICKS, template, false, false, 0);
+        }
+        burst = new MessageScheduler.Group();
+    }
+
+    @Benchmark
+    public void tick() {
+        scheduler.tick();
+    }
+
+    /**
+     * As when a Send-mode macro is triggered and its messages then cleared.
+     * With the gc profiler, shows whether entries are reused from the pool.
+     */
+    @Benchmark
+    public void scheduleAndCancel() {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            scheduler.schedule(burst, 20 + i * 5, -1, template, false, false, 0);
+        }
+        scheduler.cancel(burst, false);
+    }
+}
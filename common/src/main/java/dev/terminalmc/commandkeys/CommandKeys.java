@@ -19,23 +19,27 @@ package dev.terminalmc.commandkeys;
 import com.mojang.blaze3d.platform.InputConstants;
 import com.mojang.datafixers.util.Pair;
 import dev.terminalmc.commandkeys.config.Config;
-import dev.terminalmc.commandkeys.config.Macro;
 import dev.terminalmc.commandkeys.config.Profile;
+import dev.terminalmc.commandkeys.gui.overlay.MetricsOverlay;
 import dev.terminalmc.commandkeys.gui.screen.OptionsScreen;
+import dev.terminalmc.commandkeys.util.GameClient;
+import dev.terminalmc.commandkeys.util.MessageScheduler;
+import dev.terminalmc.commandkeys.util.Metrics;
+import dev.terminalmc.commandkeys.util.MinecraftGameClient;
 import dev.terminalmc.commandkeys.util.ModLogger;
+import dev.terminalmc.commandkeys.util.PlaceholderContext;
 import dev.terminalmc.commandkeys.util.PlaceholderUtil;
+import dev.terminalmc.commandkeys.util.RateLimiter;
+import dev.terminalmc.commandkeys.util.SendQueue;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.KeyMapping;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.screens.ChatScreen;
+import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.client.player.LocalPlayer;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static dev.terminalmc.commandkeys.util.Localization.localized;
 import static dev.terminalmc.commandkeys.util.Localization.translationKey;
 
@@ -43,6 +47,7 @@ public class CommandKeys {
     public static final String MOD_ID = "commandkeys";
     public static final String MOD_NAME = "CommandKeys";
     public static final ModLogger LOG = new ModLogger(MOD_NAME);
+    public static final MessageScheduler SCHEDULER = new MessageScheduler();
     public static final KeyMapping CONFIG_KEY = new KeyMapping(
             translationKey("key", "main.edit"), InputConstants.Type.KEYSYM,
             InputConstants.KEY_K, translationKey("key", "main"));
@@ -54,32 +59,75 @@ public class CommandKeys {
     
     public static String lastConnection = "";
     
-    private static final List<TickCounter> rateLimiter = new ArrayList<>();
-    private static class TickCounter {
-        int time = 0;
-        int tick() {
-            return time++;
-        }
-    }
+    private static final RateLimiter RATELIMITER = new RateLimiter();
+    public static final SendQueue SEND_QUEUE = new SendQueue();
+    /**
+     * Access to the game client for macros, placeholders and the send queue.
+     * May be replaced to run those without the game.
+     */
+    public static GameClient client = new MinecraftGameClient();
 
     public static void init() {
         Config.getAndSave();
+        Config.watch();
     }
 
     public static void onEndTick(Minecraft mc) {
+        long start = Metrics.start();
         // Open config screen via keybind
         while (CONFIG_KEY.consumeClick()) {
             mc.setScreen(new OptionsScreen(mc.screen, true));
         }
+        // Apply external config changes and save pending changes, unless the
+        // config is being edited, as saving cleans up the open lists
+        if (!(mc.screen instanceof OptionsScreen)) {
+            Config.applyReload();
+            Config.tick();
+        }
+        tickMessages();
+        Metrics.TICK.recordSince(start);
+        // Refresh performance overlay, after recording so it is not measured
+        MetricsOverlay.tick();
+    }
+
+    public static void onRenderGui(GuiGraphics graphics) {
+        MetricsOverlay.render(graphics);
+    }
+
+    /**
+     * Advances the ratelimiter, scheduled messages and send queue by one tick.
+     * Only depends on the game via {@link CommandKeys#client}.
+     */
+    public static void tickMessages() {
         // Tick ratelimiter
-        rateLimiter.removeIf((tc) -> tc.tick() > Config.get().getRatelimitTicks());
-        // Tick macros
-        if (mc.player != null && mc.level != null && !mc.isPaused()) {
-            Config.get().activeProfile().getMacros().forEach(Macro::tick);
-            // Note: If multiple macros are triggered in the same tick, the
-            // message order will be based on their list positions, not the 
-            // order in which they were triggered order.
+        RATELIMITER.tick();
+        // Invalidate placeholder world snapshot
+        PlaceholderContext.tick();
+        // Send scheduled messages
+        if (client.isPlaying()) SCHEDULER.tick();
+        Metrics.PENDING.record(SCHEDULER.size());
+        // Send queued messages
+        if (!client.hasPlayer()) {
+            SEND_QUEUE.clear();
+        } else if (client.canSendMessages()) {
+            SEND_QUEUE.tick();
         }
+        Metrics.QUEUED.record(SEND_QUEUE.size());
+    }
+
+    /**
+     * Clears the ratelimiter and all scheduled and queued messages, as on
+     * startup, so that runs without the game are independent.
+     */
+    public static void resetState() {
+        RATELIMITER.reset();
+        SCHEDULER.clear();
+        SEND_QUEUE.clear();
+        lastConnection = "";
+    }
+
+    public static void onShutdown() {
+        Config.flush();
     }
 
     public static void onConfigSaved(Config config) {
@@ -100,15 +148,15 @@ public class CommandKeys {
     }
     
     public static boolean inSingleplayer() {
-        return Minecraft.getInstance().getSingleplayerServer() != null;
+        return client.isInSingleplayer();
     }
     
     public static boolean canTrigger(InputConstants.Key key) {
         if (
-                (!inSingleplayer() || Config.get().ratelimitSp) 
-                && rateLimiter.size() >= Config.get().getRatelimitCount()) 
+                (!inSingleplayer() || Config.get().getRatelimitSp()) 
+                && RATELIMITER.isLimited()) 
         {
-            Minecraft.getInstance().gui.getChat().addMessage(PREFIX.copy().append(
+            client.addChatMessage(PREFIX.copy().append(
                     localized("message", "sendBlocked",
                             key.getDisplayName().copy().withStyle(ChatFormatting.GRAY),
                             Component.literal(String.valueOf(Config.get().getRatelimitCount()))
@@ -116,49 +164,70 @@ public class CommandKeys {
                             Component.literal(String.valueOf(Config.get().getRatelimitTicks()))
                                     .withStyle(ChatFormatting.GRAY))
                             .withStyle(ChatFormatting.RED)));
-            if (Config.getAndSave().ratelimitStrict) rateLimiter.add(new TickCounter());
+            Metrics.RATELIMITED.increment();
+            if (Config.get().getRatelimitStrict()) RATELIMITER.record();
             return false;
         }
-        rateLimiter.add(new TickCounter());
+        RATELIMITER.record();
         return true;
     }
 
     public static void send(String message, boolean addToHistory, boolean showHudMsg) {
+        send(false, PlaceholderUtil.compile(message), addToHistory, showHudMsg);
+    }
+
+    public static void send(PlaceholderUtil.Template message, boolean addToHistory, boolean showHudMsg) {
         send(false, message, addToHistory, showHudMsg);
     }
 
-    public static void type(String message) {
+    public static void type(PlaceholderUtil.Template message) {
         send(true, message, false, false);
     }
 
-    public static void send(boolean type, String message, boolean addToHistory, boolean showHudMsg) {
-        Minecraft mc = Minecraft.getInstance();
-        if (mc.player == null) return;
-        if (!mc.player.connection.isAcceptingMessages()) return;
-        Pair<String,Integer> result = PlaceholderUtil.replace(message);
-        message = result.getFirst();
+    public static void send(boolean type, PlaceholderUtil.Template template, 
+                            boolean addToHistory, boolean showHudMsg) {
+        send(type, template, addToHistory, showHudMsg, 0);
+    }
+
+    /**
+     * @param pressed the time of the triggering key-press, from
+     *                {@link Metrics#start()}, or 0 if not measured.
+     */
+    public static void send(boolean type, PlaceholderUtil.Template template,
+                            boolean addToHistory, boolean showHudMsg, long pressed) {
+        if (!client.canSendMessages()) return;
+        Pair<String,Integer> result = template.render();
+        String message = result.getFirst();
         int faults = result.getSecond();
         if (faults == 0) {
             if (type) {
-                mc.setScreen(new ChatScreen(message));
+                client.openChat(message);
             } else {
-                // new ChatScreen("").handleChatInput(message, addToHistory)
-                // could be slightly better for compat but costs performance.
-                if (message.startsWith("/")) {
-                    mc.player.connection.sendCommand(message.substring(1));
-                } else {
-                    mc.player.connection.sendChat(message);
-                }
-                if (addToHistory) mc.gui.getChat().addRecentChat(message);
-                if (showHudMsg) mc.gui.setOverlayMessage(Component.literal(message)
-                        .withStyle(ChatFormatting.GRAY), false);
+                SEND_QUEUE.offer(message, addToHistory, showHudMsg, pressed);
             }
         } else {
             MutableComponent msg = PREFIX.copy();
             msg.append(localized("message", "placeholderFault",
                     Component.literal(message).withStyle(ChatFormatting.GRAY))
                     .withStyle(ChatFormatting.RED));
-            mc.gui.getChat().addMessage(msg);
+            client.addChatMessage(msg);
+        }
+    }
+
+    /**
+     * Sends a fully-resolved message or command without pacing. Should only be
+     * called by {@link SendQueue}.
+     */
+    public static void sendImmediately(String message, boolean addToHistory, boolean showHudMsg) {
+        // new ChatScreen("").handleChatInput(message, addToHistory)
+        // could be slightly better for compat but costs performance.
+        if (message.startsWith("/")) {
+            client.sendCommand(message.substring(1));
+        } else {
+            client.sendChat(message);
         }
+        if (addToHistory) client.addRecentChat(message);
+        if (showHudMsg) client.setOverlayMessage(Component.literal(message)
+                .withStyle(ChatFormatting.GRAY));
     }
 }
@@ -17,110 +17,189 @@
 package dev.terminalmc.commandkeys.config;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.ChatIndex;
+import dev.terminalmc.commandkeys.util.MessageScheduler;
+import dev.terminalmc.commandkeys.util.Metrics;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import static dev.terminalmc.commandkeys.config.Profile.LINK_PROFILE_MAP;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32C;
 
 /**
- * Config consists of a list of {@link Profile} instances, two {@code int}s to 
- * keep track of the default profiles for singleplayer and multiplayer, default 
- * options for new {@link Profile} or {@link Macro} instances, and global
- * mod options.
+ * Config consists of a list of {@link Profile} instances, the IDs of the 
+ * default profiles for singleplayer and multiplayer, default options for new 
+ * {@link Profile} or {@link Macro} instances, and global mod options.
+ *
+ * <p>Profiles are identified by {@link Profile#getId()} rather than list
+ * position, and a transient map of profiles by ID is maintained in
+ * most-recently-activated order, so activation does not change the order of
+ * the profile list. Only profiles which have been active since the config was
+ * loaded are materialized.</p>
  *
- * <p>When a profile is activated it is automatically moved to the start of the
- * list, so the list maintains most-recently-used order and the current active
- * profile can be obtained using {@code getFirst()}.</p>
+ * <p>The links of all profiles are registered with a {@link LinkIndex} owned
+ * by the config, so discarding a config also discards its link index and
+ * profiles.</p>
  *
  * <p>The profile list is guaranteed to contain at least one instance at all
  * times, and at least two if the singleplayer default instance is not also the
  * multiplayer default instance.</p>
  */
 public class Config {
-    public final int version = 5;
-    private static final Path DIR_PATH = Path.of("config");
+    public final int version = 11;
+    /**
+     * The config directory, relative to the game directory unless overridden
+     * by a system property, e.g. to run benchmarks outside the game.
+     */
+    private static final Path DIR_PATH = Path.of(
+            System.getProperty(CommandKeys.MOD_ID + ".configDir", "config"));
     private static final String FILE_NAME = CommandKeys.MOD_ID + ".json";
     private static final String BACKUP_FILE_NAME = CommandKeys.MOD_ID + ".unreadable.json";
-    private static final Gson GSON = new GsonBuilder()
-            .registerTypeAdapter(Config.class, new Config.Deserializer())
-            .registerTypeAdapter(Profile.class, new Profile.Deserializer())
-            .registerTypeAdapter(Macro.class, new Macro.Deserializer())
-            .registerTypeAdapter(Keybind.class, new Keybind.Deserializer())
-            .registerTypeAdapter(Message.class, new Message.Deserializer())
+    private static final String CACHE_FILE_NAME = CommandKeys.MOD_ID + ".bin";
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new Config.Reader())
+            .registerTypeAdapterFactory(new Profile.Reader())
+            .registerTypeAdapterFactory(new Macro.Reader())
+            .registerTypeAdapterFactory(new Keybind.Reader())
+            .registerTypeAdapterFactory(new Message.Reader())
             .setPrettyPrinting()
             .create();
 
     // Profile list
     private final List<Profile> profiles;
-    private int spDefault;
-    private int mpDefault;
+    private UUID spDefault;
+    private UUID mpDefault;
+    /**
+     * Profiles by ID, in least- to most-recently activated order.
+     */
+    private transient final LinkedHashMap<UUID, Profile> profileMap = new LinkedHashMap<>();
+    private transient Profile active;
+    private transient final LinkIndex linkIndex = new LinkIndex();
 
     // Default options used by new macro instances
-    public Macro.ConflictStrategy defaultConflictStrategy;
-    public Macro.SendMode defaultSendMode;
+    private Macro.ConflictStrategy defaultConflictStrategy;
+    private Macro.SendMode defaultSendMode;
 
     // Ratelimit options
     private int ratelimitCount;
     private int ratelimitTicks;
-    public boolean ratelimitStrict;
-    public boolean ratelimitSp;
+    private boolean ratelimitStrict;
+    private boolean ratelimitSp;
+    private RatelimitMode ratelimitMode;
+    public enum RatelimitMode {
+        WINDOW,
+        REFILL,
+    }
+    public static final int MAX_SEND_RATE = 100;
+    private int sendRate;
+
+    // Placeholder options
+    public static final int MAX_CHAT_SEARCH_DEPTH = 1000;
+    private int chatSearchDepth;
+    public static final int MAX_LOOK_DISTANCE = 4096;
+    /**
+     * Look distance based on the render distance.
+     */
+    public static final int LOOK_DISTANCE_AUTO = 0;
+    private int lookDistance;
+
+    // Advanced options
+    private boolean binaryCache;
 
     /**
      * Creates a profile list with a single profile, set as both singleplayer
      * and multiplayer default.
      */
     public Config() {
-        this(new ArrayList<>(List.of(new Profile("Default Profile"))), 0, 0, 
-                Macro.ConflictStrategy.SUBMIT, Macro.SendMode.SEND, 4, 20, false, false);
+        this(new Profile("Default Profile"));
+    }
+
+    private Config(Profile profile) {
+        this(new ArrayList<>(List.of(profile)), profile, profile, 
+                Macro.ConflictStrategy.SUBMIT, Macro.SendMode.SEND, 4, 20, false, false,
+                RatelimitMode.WINDOW, 0, 50, LOOK_DISTANCE_AUTO, true);
     }
 
     /**
-     * Not validated, only for use by self-validating deserializer.
+     * Not validated, only for use by self-validating readers.
      */
-    private Config(List<Profile> profiles, int spDefault, int mpDefault, 
+    Config(List<Profile> profiles, Profile spDefault, Profile mpDefault, 
                    Macro.ConflictStrategy defaultConflictStrategy, Macro.SendMode defaultSendMode,
-                   int ratelimitCount, int ratelimitTicks, boolean ratelimitStrict, boolean ratelimitSp) {
+                   int ratelimitCount, int ratelimitTicks, boolean ratelimitStrict, boolean ratelimitSp,
+                   RatelimitMode ratelimitMode, int sendRate, int chatSearchDepth, 
+                   int lookDistance, boolean binaryCache) {
         this.profiles = profiles;
-        this.spDefault = spDefault;
-        this.mpDefault = mpDefault;
-        activateProfile(spDefault);
+        for (Profile profile : profiles) {
+            profileMap.put(profile.getId(), profile);
+            registerLinks(profile);
+        }
+        this.spDefault = spDefault.getId();
+        this.mpDefault = mpDefault.getId();
+        profileMap.putLast(spDefault.getId(), spDefault);
+        // Not materialized, as readers may run off the client thread
+        active = spDefault;
         this.defaultConflictStrategy = defaultConflictStrategy;
         this.defaultSendMode = defaultSendMode;
         this.ratelimitCount = ratelimitCount;
         this.ratelimitTicks = ratelimitTicks;
         this.ratelimitStrict = ratelimitStrict;
         this.ratelimitSp = ratelimitSp;
+        this.ratelimitMode = ratelimitMode;
+        this.sendRate = sendRate;
+        this.chatSearchDepth = chatSearchDepth;
+        this.lookDistance = lookDistance;
+        this.binaryCache = binaryCache;
+    }
+
+    public Profile getSpDefault() {
+        return profileMap.get(spDefault);
+    }
+
+    public void setSpDefault(Profile profile) {
+        if (profileMap.get(profile.getId()) != profile) throw new IllegalArgumentException();
+        this.spDefault = profile.getId();
+        markDirty();
+    }
+
+    public Profile getMpDefault() {
+        return profileMap.get(mpDefault);
     }
 
-    public int getSpDefault() {
-        return spDefault;
+    public void setMpDefault(Profile profile) {
+        if (profileMap.get(profile.getId()) != profile) throw new IllegalArgumentException();
+        this.mpDefault = profile.getId();
+        markDirty();
     }
 
-    public void setSpDefault(int index) {
-        if (index < 0 || index >= profiles.size()) 
-            throw new IndexOutOfBoundsException(index);
-        this.spDefault = index;
+    public Macro.ConflictStrategy getDefaultConflictStrategy() {
+        return defaultConflictStrategy;
     }
 
-    public int getMpDefault() {
-        return mpDefault;
+    public void setDefaultConflictStrategy(Macro.ConflictStrategy strategy) {
+        this.defaultConflictStrategy = strategy;
+        markDirty();
     }
 
-    public void setMpDefault(int index) {
-        if (spDefault < 0 || spDefault >= profiles.size())
-            throw new IndexOutOfBoundsException(index);
-        this.mpDefault = index;
+    public Macro.SendMode getDefaultSendMode() {
+        return defaultSendMode;
+    }
+
+    public void setDefaultSendMode(Macro.SendMode mode) {
+        this.defaultSendMode = mode;
+        markDirty();
     }
 
     public int getRatelimitCount() {
@@ -130,6 +209,7 @@ public class Config {
     public void setRatelimitCount(int count) {
         if (count < 1) throw new IllegalArgumentException();
         this.ratelimitCount = count;
+        markDirty();
     }
 
     public int getRatelimitTicks() {
@@ -139,6 +219,95 @@ public class Config {
     public void setRatelimitTicks(int ticks) {
         if (ticks < 1) throw new IllegalArgumentException();
         this.ratelimitTicks = ticks;
+        markDirty();
+    }
+
+    /**
+     * @return {@code true} if blocked activations count towards the
+     * ratelimit, {@code false} otherwise.
+     */
+    public boolean getRatelimitStrict() {
+        return ratelimitStrict;
+    }
+
+    public void setRatelimitStrict(boolean strict) {
+        this.ratelimitStrict = strict;
+        markDirty();
+    }
+
+    /**
+     * @return {@code true} if the ratelimit applies in singleplayer,
+     * {@code false} otherwise.
+     */
+    public boolean getRatelimitSp() {
+        return ratelimitSp;
+    }
+
+    public void setRatelimitSp(boolean sp) {
+        this.ratelimitSp = sp;
+        markDirty();
+    }
+
+    public RatelimitMode getRatelimitMode() {
+        return ratelimitMode;
+    }
+
+    public void setRatelimitMode(RatelimitMode mode) {
+        this.ratelimitMode = mode;
+        markDirty();
+    }
+
+    /**
+     * @return the maximum number of messages sent per second, or 0 for no
+     * limit.
+     */
+    public int getSendRate() {
+        return sendRate;
+    }
+
+    public void setSendRate(int rate) {
+        if (rate < 0 || rate > MAX_SEND_RATE) throw new IllegalArgumentException();
+        this.sendRate = rate;
+        markDirty();
+    }
+
+    public int getChatSearchDepth() {
+        return chatSearchDepth;
+    }
+
+    public void setChatSearchDepth(int depth) {
+        if (depth < 1 || depth > MAX_CHAT_SEARCH_DEPTH) throw new IllegalArgumentException();
+        this.chatSearchDepth = depth;
+        if (this == instance) ChatIndex.setCapacity(depth);
+        markDirty();
+    }
+
+    /**
+     * @return the maximum distance in blocks of the block the player is 
+     * looking at, or {@link Config#LOOK_DISTANCE_AUTO}.
+     */
+    public int getLookDistance() {
+        return lookDistance;
+    }
+
+    public void setLookDistance(int distance) {
+        if (distance < LOOK_DISTANCE_AUTO || distance > MAX_LOOK_DISTANCE) 
+            throw new IllegalArgumentException();
+        this.lookDistance = distance;
+        markDirty();
+    }
+
+    /**
+     * @return {@code true} if a binary cache of the config is written
+     * alongside the config file for faster loading, {@code false} otherwise.
+     */
+    public boolean getBinaryCache() {
+        return binaryCache;
+    }
+
+    public void setBinaryCache(boolean binaryCache) {
+        this.binaryCache = binaryCache;
+        markDirty();
     }
     
     // Profile activation handling
@@ -147,49 +316,53 @@ public class Config {
      * @return the most recently activated {@link Profile}.
      */
     public Profile activeProfile() {
-        return profiles.getFirst();
+        return active;
     }
 
     /**
-     * Activates the {@link Profile} at {@code index}, if it is not already
-     * active.
+     * Activates {@code profile}, if it is not already active.
      */
-    public void activateProfile(int index) {
-        profiles.getFirst().getMacros().forEach((macro) -> {
+    public void activateProfile(Profile profile) {
+        active.getMacros().forEach((macro) -> {
             if (!macro.resumeRepeatingStatus) macro.stopRepeating();
         });
-        if (index != 0) {
-            profiles.addFirst(profiles.remove(index));
-            if (index == spDefault) spDefault = 0;
-            else if (index > spDefault) spDefault++;
-            if (index == mpDefault) mpDefault = 0;
-            else if (index > mpDefault) mpDefault++;
+        if (profile != active) {
+            // Pending messages of inactive profiles are held until reactivation
+            CommandKeys.SCHEDULER.suspend(scheduleGroups(active));
+            profileMap.putLast(profile.getId(), profile);
+            active = profile;
+            active.materialize();
+            CommandKeys.SCHEDULER.resume(scheduleGroups(active));
         }
     }
 
+    private static List<MessageScheduler.Group> scheduleGroups(Profile profile) {
+        return profile.getMacros().stream().map(Macro::getScheduled).toList();
+    }
+
     /**
      * Activates the profile linked to the level ID, if one exists, else
      * activates the singleplayer default profile.
      */
     public void activateSpProfile(String levelId) {
-        Profile profile = LINK_PROFILE_MAP.getOrDefault(levelId, null);
-        if (profile != null) {
-            activateProfile(profiles.indexOf(profile));
+        Profile profile = linkIndex.findWorld(levelId);
+        if (profile != null && profileMap.get(profile.getId()) == profile) {
+            activateProfile(profile);
         } else {
-            activateProfile(spDefault);
+            activateProfile(getSpDefault());
         }
     }
 
     /**
-     * Activates the profile linked to the address, if one exists, else
+     * Activates the profile linked to the server address, if one exists, else
      * activates the multiplayer default profile.
      */
-    public void activateMpProfile(String address) {
-        Profile profile = LINK_PROFILE_MAP.getOrDefault(address, null);
-        if (profile != null) {
-            activateProfile(profiles.indexOf(profile));
+    public void activateMpProfile(String host, int port) {
+        Profile profile = linkIndex.findServer(host, port);
+        if (profile != null && profileMap.get(profile.getId()) == profile) {
+            activateProfile(profile);
         } else {
-            activateProfile(mpDefault);
+            activateProfile(getMpDefault());
         }
     }
     
@@ -208,24 +381,70 @@ public class Config {
      */
     public void copyProfile(Profile profile) {
         Profile copyProfile = new Profile(profile);
-        copyProfile.name = profile.getDisplayName() + " (Copy)";
-        profiles.add(copyProfile);
+        copyProfile.setName(profile.getDisplayName() + " (Copy)");
+        addProfile(copyProfile);
     }
 
     /**
-     * Adds {@code profile} to the {@link Profile} list.
+     * Adds {@code profile} to the end of the {@link Profile} list.
      */
     public void addProfile(Profile profile) {
         profiles.add(profile);
+        profileMap.putFirst(profile.getId(), profile);
+        registerLinks(profile);
+        markDirty();
+    }
+
+    /**
+     * Removes {@code profile} from the {@link Profile} list. If it is active,
+     * the previously active profile is activated.
+     * @throws IllegalArgumentException if {@code profile} is the singleplayer
+     * or multiplayer default.
+     */
+    public void removeProfile(Profile profile) {
+        if (profile.getId().equals(spDefault) || profile.getId().equals(mpDefault))
+            throw new IllegalArgumentException("Cannot remove a default profile");
+        if (profileMap.remove(profile.getId()) == null) return;
+        profiles.remove(profile);
+        for (String link : profile.links) linkIndex.remove(link, profile);
+        if (profile.isMaterialized()) profile.getMacros().forEach(Macro::clearScheduled);
+        if (profile == active) {
+            active = profileMap.lastEntry().getValue();
+            active.materialize();
+            CommandKeys.SCHEDULER.resume(scheduleGroups(active));
+        }
+        markDirty();
     }
 
+    // Link handling
+
     /**
-     * Removes the element at {@code index} in the {@link Profile} list.
+     * Adds {@code link} to {@code profile}, after removing it from any other
+     * profile.
      */
-    public void removeProfile(int index) {
-        profiles.remove(index);
-        if (index < spDefault) spDefault--;
-        if (index < mpDefault) mpDefault--;
+    public void forceAddLink(Profile profile, String link) {
+        Profile owner = linkIndex.get(link);
+        if (owner != null) owner.links.remove(link);
+        profile.links.add(link);
+        linkIndex.put(link, profile);
+        markDirty();
+    }
+
+    /**
+     * Removes {@code link} from {@code profile}.
+     */
+    public void removeLink(Profile profile, String link) {
+        profile.links.remove(link);
+        linkIndex.remove(link, profile);
+        markDirty();
+    }
+
+    /**
+     * Registers the links of {@code profile}, removing any which are already
+     * registered to another profile.
+     */
+    private void registerLinks(Profile profile) {
+        profile.links.removeIf((link) -> !linkIndex.putIfAbsent(link, profile));
     }
 
     // Cleanup
@@ -236,23 +455,160 @@ public class Config {
 
     // Instance management
 
+    /**
+     * Snapshot constructor. The snapshot has no active profile or link index,
+     * and is only for use by writers.
+     */
+    private Config(Config config, List<Profile> profiles) {
+        this.profiles = profiles;
+        for (Profile profile : profiles) profileMap.put(profile.getId(), profile);
+        this.spDefault = config.spDefault;
+        this.mpDefault = config.mpDefault;
+        this.defaultConflictStrategy = config.defaultConflictStrategy;
+        this.defaultSendMode = config.defaultSendMode;
+        this.ratelimitCount = config.ratelimitCount;
+        this.ratelimitTicks = config.ratelimitTicks;
+        this.ratelimitStrict = config.ratelimitStrict;
+        this.ratelimitSp = config.ratelimitSp;
+        this.ratelimitMode = config.ratelimitMode;
+        this.sendRate = config.sendRate;
+        this.chatSearchDepth = config.chatSearchDepth;
+        this.lookDistance = config.lookDistance;
+        this.binaryCache = config.binaryCache;
+    }
+
+    /**
+     * @return a copy of this config sharing no mutable state, so that it can
+     * be serialized on another thread.
+     */
+    private Config snapshot() {
+        List<Profile> copies = new ArrayList<>(profiles.size());
+        for (Profile profile : profiles) copies.add(profile.snapshot());
+        return new Config(this, copies);
+    }
+
     private static Config instance = null;
+    private static final int SAVE_INTERVAL_TICKS = 100;
+    private static boolean dirty = false;
+    private static final ConfigWatcher WATCHER = new ConfigWatcher(DIR_PATH.resolve(FILE_NAME));
+    private static final ConfigWriter WRITER = new ConfigWriter(
+            DIR_PATH.resolve(FILE_NAME), DIR_PATH.resolve(CACHE_FILE_NAME), GSON,
+            WATCHER::ignore);
+    private static int ticksSinceSave = 0;
+
+    /**
+     * @return the directory containing the config file.
+     */
+    public static Path getDirPath() {
+        return DIR_PATH;
+    }
 
     public static Config get() {
         if (instance == null) {
-            instance = Config.load();
+            setInstance(Config.load());
         }
         return instance;
     }
 
+    /**
+     * Replaces the config, applying options held outside of it.
+     */
+    private static void setInstance(Config config) {
+        instance = config;
+        ChatIndex.setCapacity(config.chatSearchDepth);
+    }
+
     public static Config getAndSave() {
         get();
         save();
         return instance;
     }
 
+    /**
+     * Marks the config as changed, to be saved by the next call to
+     * {@link Config#tick()} after the save interval, or {@link Config#flush()}.
+     */
+    public static void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Saves the config if it has changed and the save interval has elapsed
+     * since the last save, so bursts of changes are coalesced into a single 
+     * write. Must not be called while the config is being edited, as saving
+     * removes blank messages and empty macros.
+     */
+    public static void tick() {
+        if (ticksSinceSave < SAVE_INTERVAL_TICKS) ticksSinceSave++;
+        else if (dirty) save();
+    }
+
+    /**
+     * Saves the config if it has changed, and waits for all pending writes to
+     * complete.
+     */
+    public static void flush() {
+        if (dirty) save();
+        WRITER.flush();
+    }
+
+    /**
+     * Starts watching the config file for changes made outside the game, to
+     * be applied by {@link Config#applyReload()}.
+     */
+    public static void watch() {
+        WATCHER.start();
+    }
+
+    /**
+     * Replaces the config with the content of the config file, if it has
+     * been changed outside the game. Messages scheduled by macros which are
+     * unchanged are retained.
+     *
+     * <p>If the config has unsaved changes, the change is not applied, and
+     * the file is overwritten by the next save.</p>
+     */
+    public static void applyReload() {
+        ConfigWatcher.Change change = WATCHER.poll();
+        if (change == null) return;
+        if (dirty) {
+            CommandKeys.LOG.warn("Config file changed outside the game while there are "
+                    + "unsaved changes in game, keeping the unsaved changes");
+            return;
+        }
+        Config config = change.config();
+        if (instance != null) config.adoptState(instance);
+        else config.active.materialize();
+        setInstance(config);
+        if (config.binaryCache) WRITER.submitCache(config.snapshot(), change.crc());
+        CommandKeys.LOG.info("Reloaded config");
+    }
+
+    /**
+     * Transfers transient state from {@code old}, which is being replaced by
+     * this config, and activates the equivalent of its active profile if one
+     * exists.
+     */
+    private void adoptState(Config old) {
+        for (Profile oldProfile : old.profiles) {
+            if (!oldProfile.isMaterialized()) continue;
+            Profile profile = profileMap.get(oldProfile.getId());
+            if (profile != null) profile.adoptState(oldProfile);
+            else oldProfile.getMacros().forEach(Macro::clearScheduled);
+        }
+        Profile previous = profileMap.get(old.active.getId());
+        if (previous != null) {
+            profileMap.putLast(previous.getId(), previous);
+            active = previous;
+        }
+        active.materialize();
+        // Adopted messages of inactive profiles remain suspended
+        CommandKeys.SCHEDULER.resume(scheduleGroups(active));
+    }
+
     public static Config resetAndSave() {
-        instance = new Config();
+        CommandKeys.SCHEDULER.clear();
+        setInstance(new Config());
         save();
         return instance;
     }
@@ -263,19 +619,39 @@ public class Config {
         Path file = DIR_PATH.resolve(FILE_NAME);
         Config config = null;
         if (Files.exists(file)) {
-            config = load(file, GSON);
+            long start = System.nanoTime();
+            String source = "cache";
+            config = ConfigCache.read(DIR_PATH.resolve(CACHE_FILE_NAME), file);
             if (config == null) {
-                backup();
+                source = "JSON";
+                config = load(file, GSON);
+            }
+            if (config != null) {
+                config.active.materialize();
+                logLoaded(config, source, start);
+            } else {
+                backup(false);
                 CommandKeys.LOG.warn("Resetting config");
             }
         }
         return config != null ? config : new Config();
     }
 
+    /**
+     * Loads the config from JSON, and queues the cache to be written from the
+     * loaded config if enabled, without rewriting the file.
+     */
     private static @Nullable Config load(Path file, Gson gson) {
-        try (InputStreamReader reader = new InputStreamReader(
-                new FileInputStream(file.toFile()), StandardCharsets.UTF_8)) {
-            return gson.fromJson(reader, Config.class);
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            Config config = gson.fromJson(new String(bytes, StandardCharsets.UTF_8), Config.class);
+            if (config == null) return null;
+            if (config.binaryCache) {
+                CRC32C crc = new CRC32C();
+                crc.update(bytes);
+                WRITER.submitCache(config.snapshot(), crc.getValue());
+            }
+            return config;
         } catch (Exception e) {
             // Catch Exception as errors in deserialization may not fall under
             // IOException or JsonParseException, but should not crash the game.
@@ -284,98 +660,192 @@ public class Config {
         }
     }
 
-    private static void backup() {
+    private static void logLoaded(Config config, String source, long start) {
+        int materialized = 0;
+        int macros = 0;
+        for (Profile profile : config.profiles) {
+            if (!profile.isMaterialized()) continue;
+            materialized++;
+            macros += profile.getMacros().size();
+        }
+        CommandKeys.LOG.info("Loaded config from {} in {} ms: {} profiles, {} materialized "
+                        + "with {} macros", source, (System.nanoTime() - start) / 1_000_000, 
+                config.profiles.size(), materialized, macros);
+    }
+
+    /**
+     * Copies the config file to the backup file.
+     * @param keep whether to keep the config file, rather than moving it.
+     */
+    static void backup(boolean keep) {
         try {
             CommandKeys.LOG.warn("Copying {} to {}", FILE_NAME, BACKUP_FILE_NAME);
             if (!Files.isDirectory(DIR_PATH)) Files.createDirectories(DIR_PATH);
             Path file = DIR_PATH.resolve(FILE_NAME);
             Path backupFile = file.resolveSibling(BACKUP_FILE_NAME);
-            Files.move(file, backupFile, StandardCopyOption.ATOMIC_MOVE,
-                    StandardCopyOption.REPLACE_EXISTING);
+            if (keep) {
+                Files.copy(file, backupFile, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.move(file, backupFile, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             CommandKeys.LOG.error("Unable to copy config file", e);
         }
     }
 
+    /**
+     * Takes a snapshot of the config and queues it to be written to disk on a
+     * background thread, along with a binary cache if enabled. The client
+     * thread only copies the macros of materialized profiles, the others being
+     * shared as immutable blobs, and both serializations happen on the writer
+     * thread. The time taken on the client thread is recorded by
+     * {@link Metrics#CONFIG_SAVE}.
+     */
     public static void save() {
         if (instance == null) return;
+        long start = Metrics.start();
+        dirty = false;
+        ticksSinceSave = 0;
         instance.cleanup();
-        try {
-            if (!Files.isDirectory(DIR_PATH)) Files.createDirectories(DIR_PATH);
-            Path file = DIR_PATH.resolve(FILE_NAME);
-            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
-            try (OutputStreamWriter writer = new OutputStreamWriter(
-                    new FileOutputStream(tempFile.toFile()), StandardCharsets.UTF_8)) {
-                writer.write(GSON.toJson(instance));
-            } catch (IOException e) {
-                throw new IOException(e);
-            }
-            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE,
-                    StandardCopyOption.REPLACE_EXISTING);
-            CommandKeys.onConfigSaved(instance);
-        } catch (IOException e) {
-            CommandKeys.LOG.error("Unable to save config", e);
-        }
+        WRITER.submit(instance.snapshot());
+        Metrics.CONFIG_SAVE.recordSince(start);
+        CommandKeys.onConfigSaved(instance);
     }
 
     // Deserialization
 
-    public static class Deserializer implements JsonDeserializer<Config> {
+    public static class Reader extends StreamingReader<Config> {
+        public Reader() {
+            super(Config.class);
+        }
+
         @Override
-        public Config deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-                throws JsonParseException {
-            JsonObject obj = json.getAsJsonObject();
-            int version = obj.has("version") ? obj.get("version").getAsInt() : 0;
+        Config read(JsonReader in, Gson gson) throws IOException {
+            TypeAdapter<Profile> profileAdapter = gson.getAdapter(Profile.class);
+            TypeAdapter<JsonElement> treeAdapter = gson.getAdapter(JsonElement.class);
+            Integer version = null;
+            String defaultConflictStrategyName = null;
+            String defaultSendModeName = null;
+            Integer ratelimitCount = null;
+            Integer ratelimitTicks = null;
+            Boolean ratelimitStrict = null;
+            Boolean ratelimitSp = null;
+            String ratelimitModeName = null;
+            Integer sendRate = null;
+            Integer chatSearchDepth = null;
+            Integer lookDistance = null;
+            Boolean binaryCache = null;
+            List<Profile> profiles = null;
+            Profile spDefaultProfile = null;
+            Profile mpDefaultProfile = null;
+            JsonElement spDefault = null;
+            JsonElement mpDefault = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch(in.nextName()) {
+                    case "version" -> version = in.nextInt();
+                    case "defaultConflictStrategy" -> defaultConflictStrategyName = in.nextString();
+                    case "defaultSendMode" -> defaultSendModeName = in.nextString();
+                    case "ratelimitCount" -> ratelimitCount = in.nextInt();
+                    case "ratelimitTicks" -> ratelimitTicks = in.nextInt();
+                    case "ratelimitStrict" -> ratelimitStrict = in.nextBoolean();
+                    case "ratelimitSp" -> ratelimitSp = in.nextBoolean();
+                    case "ratelimitMode" -> ratelimitModeName = in.nextString();
+                    case "sendRate" -> sendRate = in.nextInt();
+                    case "chatSearchDepth" -> chatSearchDepth = in.nextInt();
+                    case "lookDistance" -> lookDistance = in.nextInt();
+                    case "binaryCache" -> binaryCache = in.nextBoolean();
+                    case "profiles" -> {
+                        profiles = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) profiles.add(profileAdapter.read(in));
+                        in.endArray();
+                    }
+                    case "spDefaultProfile" -> spDefaultProfile = profileAdapter.read(in);
+                    case "mpDefaultProfile" -> mpDefaultProfile = profileAdapter.read(in);
+                    case "spDefault" -> spDefault = treeAdapter.read(in);
+                    case "mpDefault" -> mpDefault = treeAdapter.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            int v = version != null ? version : 0;
 
-            Macro.ConflictStrategy defaultConflictStrategy = version >= 4
-                    ? Macro.ConflictStrategy.valueOf(obj.get("defaultConflictStrategy").getAsString())
+            Macro.ConflictStrategy defaultConflictStrategy = v >= 4
+                    ? Macro.ConflictStrategy.valueOf(
+                            require(defaultConflictStrategyName, "defaultConflictStrategy"))
                     : Macro.ConflictStrategy.SUBMIT;
-            Macro.SendMode defaultSendMode = version >= 4
-                    ? Macro.SendMode.valueOf(obj.get("defaultSendMode").getAsString())
+            Macro.SendMode defaultSendMode = v >= 4
+                    ? Macro.SendMode.valueOf(require(defaultSendModeName, "defaultSendMode"))
                     : Macro.SendMode.SEND;
 
-            int ratelimitCount = version >= 5
-                    ? obj.get("ratelimitCount").getAsInt()
-                    : 4;
-            int ratelimitTicks = version >= 5
-                    ? obj.get("ratelimitTicks").getAsInt()
-                    : 20;
-            boolean ratelimitStrict = version >= 5
-                    ? obj.get("ratelimitStrict").getAsBoolean()
-                    : false;
-            boolean ratelimitSp = version >= 5
-                    ? obj.get("ratelimitSp").getAsBoolean()
-                    : false;
-
-            List<Profile> profiles = new ArrayList<>();
-            for (JsonElement je : obj.getAsJsonArray("profiles")) {
-                profiles.add(ctx.deserialize(je, Profile.class));
-            }
-            
-            int spDefault;
-            int mpDefault;
-            if (version == 1) {
-                profiles.addFirst(ctx.deserialize(obj.get("mpDefaultProfile"), Profile.class));
-                profiles.addFirst(ctx.deserialize(obj.get("spDefaultProfile"), Profile.class));
+            int count = v >= 5 ? require(ratelimitCount, "ratelimitCount") : 4;
+            int ticks = v >= 5 ? require(ratelimitTicks, "ratelimitTicks") : 20;
+            boolean strict = v >= 5 ? require(ratelimitStrict, "ratelimitStrict") : false;
+            boolean limitSp = v >= 5 ? require(ratelimitSp, "ratelimitSp") : false;
+            RatelimitMode ratelimitMode = v >= 6
+                    ? RatelimitMode.valueOf(require(ratelimitModeName, "ratelimitMode"))
+                    : RatelimitMode.WINDOW;
+            int rate = v >= 9 ? require(sendRate, "sendRate") : 0;
+            int depth = v >= 7 ? require(chatSearchDepth, "chatSearchDepth") : 50;
+            int distance = v >= 8 ? require(lookDistance, "lookDistance") : LOOK_DISTANCE_AUTO;
+            boolean cache = v >= 10 ? require(binaryCache, "binaryCache") : true;
+
+            profiles = require(profiles, "profiles");
+            if (v == 1) {
+                profiles.addFirst(require(mpDefaultProfile, "mpDefaultProfile"));
+                profiles.addFirst(require(spDefaultProfile, "spDefaultProfile"));
                 if (profiles.size() < 2) throw new JsonParseException(
                         "Expected 2 or more profiles, got " + profiles.size());
-                spDefault = 0;
-                mpDefault = 1;
-            } else {
-                spDefault = obj.get("spDefault").getAsInt();
-                mpDefault = obj.get("mpDefault").getAsInt();
             }
 
             // Validate
             if (profiles.isEmpty()) throw new JsonParseException("Config Error: profiles.isEmpty()");
-            if (spDefault < 0 || spDefault >= profiles.size()) spDefault = 0;
-            if (mpDefault < 0 || mpDefault >= profiles.size()) mpDefault = 0;
-            if (ratelimitCount < 1) ratelimitCount = 4;
-            if (ratelimitTicks < 1) ratelimitTicks = 20;
+            Set<UUID> ids = new HashSet<>();
+            for (Profile profile : profiles) {
+                if (!ids.add(profile.getId())) profile.id = UUID.randomUUID();
+            }
+            Profile spProfile;
+            Profile mpProfile;
+            if (v == 1) {
+                spProfile = profiles.get(0);
+                mpProfile = profiles.get(1);
+            } else {
+                spProfile = findDefault(profiles, require(spDefault, "spDefault"), v);
+                mpProfile = findDefault(profiles, require(mpDefault, "mpDefault"), v);
+            }
+            if (count < 1) count = 4;
+            if (ticks < 1) ticks = 20;
+            if (rate < 0 || rate > MAX_SEND_RATE) rate = 0;
+            if (depth < 1 || depth > MAX_CHAT_SEARCH_DEPTH) depth = 50;
+            if (distance < LOOK_DISTANCE_AUTO || distance > MAX_LOOK_DISTANCE) {
+                distance = LOOK_DISTANCE_AUTO;
+            }
 
-            return new Config(profiles, spDefault, mpDefault, 
+            return new Config(profiles, spProfile, mpProfile, 
                     defaultConflictStrategy, defaultSendMode, 
-                    ratelimitCount, ratelimitTicks, ratelimitStrict, ratelimitSp);
+                    count, ticks, strict, limitSp, ratelimitMode,
+                    rate, depth, distance, cache);
+        }
+
+        /**
+         * @return the profile identified by {@code ref}, which is an ID for
+         * version 11 onwards and a list index before, or the first profile if
+         * there is no such profile.
+         */
+        private static Profile findDefault(List<Profile> profiles, JsonElement ref, int v) {
+            if (v >= 11) {
+                UUID id = UUID.fromString(ref.getAsString());
+                for (Profile profile : profiles) {
+                    if (profile.getId().equals(id)) return profile;
+                }
+            } else {
+                int index = ref.getAsInt();
+                if (index >= 0 && index < profiles.size()) return profiles.get(index);
+            }
+            return profiles.getFirst();
         }
     }
 }
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.stream.JsonWriter;
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.ModLogger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary snapshot of the config, written alongside the JSON file so that it
+ * can be loaded without parsing the JSON.
+ *
+ * <p>The JSON file remains the source of truth. The snapshot header records
+ * the modification time, size and CRC32C of the JSON file it was written
+ * with, and the snapshot is only used if all three still match.</p>
+ *
+ * <p>Layout: magic, format version, JSON mtime, JSON size, JSON CRC32C,
+ * payload length, payload CRC32C, payload.</p>
+ *
+ * <p>The macros of each profile are encoded as a separate length-prefixed
+ * block, so that they can be decoded lazily as a {@link MacroBlob}. Macros
+ * read from JSON and not yet materialized are stored as JSON text, which is
+ * not parsed until the profile is materialized.</p>
+ */
+class ConfigCache {
+    private static final ModLogger LOG = CommandKeys.LOG.forClass(ConfigCache.class);
+    private static final int MAGIC = 0x434B4243; // "CKBC"
+    /**
+     * Must be incremented whenever the encoding of any model class changes.
+     */
+    private static final int FORMAT_VERSION = 5;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 8;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte MACROS_BINARY = 0;
+    private static final byte MACROS_JSON = 1;
+
+    // Writing
+
+    /**
+     * Encodes {@code config}. Must be called on the thread which owns the
+     * config, unless it is a snapshot taken by {@link Config#save()}.
+     */
+    static byte[] encode(Config config) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeConfig(out, config);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Not thrown by ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of an encoded config, associated with the current
+     * state of {@code jsonFile}.
+     * @param jsonCrc the CRC32C of the contents of {@code jsonFile}.
+     */
+    static void write(Path cacheFile, Path jsonFile, long jsonCrc, byte[] payload)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(Files.getLastModifiedTime(jsonFile).toMillis())
+                .putLong(Files.size(jsonFile))
+                .putLong(jsonCrc)
+                .putInt(payload.length)
+                .putLong(crc.getValue());
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            out.write(header.array());
+            out.write(payload);
+        }
+        Files.move(tempFile, cacheFile, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeConfig(DataOutputStream out, Config config) throws IOException {
+        List<Profile> profiles = config.getProfiles();
+        out.writeInt(profiles.size());
+        for (Profile profile : profiles) writeProfile(out, profile);
+        out.writeInt(profiles.indexOf(config.getSpDefault()));
+        out.writeInt(profiles.indexOf(config.getMpDefault()));
+        out.writeByte(config.getDefaultConflictStrategy().ordinal());
+        out.writeByte(config.getDefaultSendMode().ordinal());
+        out.writeInt(config.getRatelimitCount());
+        out.writeInt(config.getRatelimitTicks());
+        out.writeBoolean(config.getRatelimitStrict());
+        out.writeBoolean(config.getRatelimitSp());
+        out.writeByte(config.getRatelimitMode().ordinal());
+        out.writeInt(config.getSendRate());
+        out.writeInt(config.getChatSearchDepth());
+        out.writeInt(config.getLookDistance());
+        out.writeBoolean(config.getBinaryCache());
+    }
+
+    private static void writeProfile(DataOutputStream out, Profile profile) throws IOException {
+        out.writeLong(profile.getId().getMostSignificantBits());
+        out.writeLong(profile.getId().getLeastSignificantBits());
+        writeString(out, profile.getName());
+        out.writeInt(profile.getLinks().size());
+        for (String link : profile.getLinks()) writeString(out, link);
+        out.writeByte(profile.getAddToHistory().ordinal());
+        out.writeByte(profile.getShowHudMessage().ordinal());
+        out.writeByte(profile.getResumeRepeating().ordinal());
+        out.writeByte(profile.getUseRatelimit().ordinal());
+        out.writeInt(profile.getSendRate());
+        if (profile.macroBlob instanceof MacroBlob.Json json) {
+            out.writeByte(MACROS_JSON);
+            writeString(out, json.text());
+        } else {
+            byte[] macros = profile.macroBlob instanceof MacroBlob.Binary binary
+                    ? binary.bytes() : encodeMacros(profile.getMacros());
+            out.writeByte(MACROS_BINARY);
+            out.writeInt(macros.length);
+            out.write(macros);
+        }
+    }
+
+    /**
+     * Encodes a macro list as part of a profile.
+     */
+    static byte[] encodeMacros(List<Macro> macros) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(macros.size());
+            for (Macro macro : macros) writeMacro(out, macro);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Not thrown by ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeMacro(DataOutputStream out, Macro macro) throws IOException {
+        out.writeBoolean(macro.addToHistory);
+        out.writeBoolean(macro.showHudMessage);
+        out.writeBoolean(macro.resumeRepeating);
+        out.writeBoolean(macro.useRatelimit);
+        out.writeByte(macro.conflictStrategy.ordinal());
+        out.writeByte(macro.sendMode.ordinal());
+        out.writeInt(macro.spaceTicks);
+        out.writeInt(macro.noRepeatWindow);
+        out.writeBoolean(macro.splitMessages);
+        writeKeybind(out, macro.keybind);
+        writeKeybind(out, macro.altKeybind);
+        out.writeInt(macro.messages.size());
+        for (Message message : macro.messages) {
+            out.writeBoolean(message.isEnabled());
+            writeString(out, message.string);
+            out.writeInt(message.delayTicks);
+            out.writeInt(message.weight);
+        }
+    }
+
+    private static void writeKeybind(DataOutputStream out, Keybind keybind) throws IOException {
+        writeString(out, keybind.getKey().getName());
+        writeString(out, keybind.getLimitKey().getName());
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Reading
+
+    /**
+     * Loads the config from {@code cacheFile}, if it exists and matches the
+     * current state of {@code jsonFile}.
+     * @return the config, or {@code null} if the cache could not be used.
+     */
+    static @Nullable Config read(Path cacheFile, Path jsonFile) {
+        if (!Files.exists(cacheFile)) return null;
+        try (FileChannel cacheChannel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            // Read rather than mapped, as a mapped file cannot be replaced on
+            // some platforms until the mapping is garbage collected
+            long size = cacheChannel.size();
+            if (size < HEADER_SIZE) return stale("truncated");
+            if (size > Integer.MAX_VALUE) return stale("too large");
+            ByteBuffer buf = ByteBuffer.allocate((int)size);
+            while (buf.hasRemaining()) {
+                if (cacheChannel.read(buf) < 0) return stale("truncated");
+            }
+            buf.flip();
+            if (buf.getInt() != MAGIC) return stale("bad magic");
+            if (buf.getInt() != FORMAT_VERSION) return stale("format changed");
+            long jsonMtime = buf.getLong();
+            long jsonSize = buf.getLong();
+            long jsonCrc = buf.getLong();
+            int payloadLength = buf.getInt();
+            long payloadCrc = buf.getLong();
+
+            // Validate against JSON file
+            if (Files.getLastModifiedTime(jsonFile).toMillis() != jsonMtime)
+                return stale("config modified");
+            if (Files.size(jsonFile) != jsonSize) return stale("config modified");
+            if (crc(jsonFile) != jsonCrc) return stale("config modified");
+
+            // Validate payload
+            if (buf.remaining() != payloadLength) return stale("truncated");
+            CRC32C crc = new CRC32C();
+            crc.update(buf.slice());
+            if (crc.getValue() != payloadCrc) return stale("corrupt");
+
+            return readConfig(buf);
+        } catch (Exception e) {
+            // Catch Exception as errors in decoding may not fall under
+            // IOException, but should not prevent loading from JSON.
+            LOG.warn("Unable to load config cache", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the CRC32C of the contents of {@code file}, read in chunks.
+     */
+    static long crc(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                crc.update(chunk);
+                chunk.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static @Nullable Config stale(String reason) {
+        LOG.debug("Not using config cache: {}", reason);
+        return null;
+    }
+
+    private static Config readConfig(ByteBuffer buf) {
+        int profileCount = buf.getInt();
+        List<Profile> profiles = new ArrayList<>(profileCount);
+        for (int i = 0; i < profileCount; i++) profiles.add(readProfile(buf));
+        return new Config(
+                profiles,
+                profiles.get(buf.getInt()),
+                profiles.get(buf.getInt()),
+                Macro.ConflictStrategy.values()[buf.get()],
+                Macro.SendMode.values()[buf.get()],
+                buf.getInt(),
+                buf.getInt(),
+                buf.get() != 0,
+                buf.get() != 0,
+                Config.RatelimitMode.values()[buf.get()],
+                buf.getInt(),
+                buf.getInt(),
+                buf.getInt(),
+                buf.get() != 0
+        );
+    }
+
+    private static Profile readProfile(ByteBuffer buf) {
+        UUID id = new UUID(buf.getLong(), buf.getLong());
+        String name = readString(buf);
+        int linkCount = buf.getInt();
+        List<String> links = new ArrayList<>(linkCount);
+        for (int i = 0; i < linkCount; i++) links.add(readString(buf));
+        Profile.Control addToHistory = Profile.Control.values()[buf.get()];
+        Profile.Control showHudMessage = Profile.Control.values()[buf.get()];
+        Profile.Control resumeRepeating = Profile.Control.values()[buf.get()];
+        Profile.Control useRatelimit = Profile.Control.values()[buf.get()];
+        int sendRate = buf.getInt();
+        MacroBlob macroBlob = switch(buf.get()) {
+            case MACROS_BINARY -> {
+                // Copied so that the cache file is not held open
+                byte[] bytes = new byte[buf.getInt()];
+                buf.get(bytes);
+                yield new MacroBlob.Binary(bytes);
+            }
+            case MACROS_JSON -> new MacroBlob.Json(readString(buf));
+            default -> throw new IllegalStateException("Invalid macro encoding");
+        };
+        Profile profile = new Profile(id, name, links, addToHistory, showHudMessage,
+                resumeRepeating, useRatelimit, sendRate, new ArrayList<>());
+        profile.macroBlob = macroBlob;
+        return profile;
+    }
+
+    /**
+     * Decodes a macro list encoded as part of a profile.
+     */
+    static List<Macro> readMacros(ByteBuffer buf) {
+        int macroCount = buf.getInt();
+        List<Macro> macros = new ArrayList<>(macroCount);
+        for (int i = 0; i < macroCount; i++) macros.add(readMacro(buf));
+        return macros;
+    }
+
+    private static Macro readMacro(ByteBuffer buf) {
+        boolean addToHistory = buf.get() != 0;
+        boolean showHudMessage = buf.get() != 0;
+        boolean resumeRepeating = buf.get() != 0;
+        boolean useRatelimit = buf.get() != 0;
+        Macro.ConflictStrategy conflictStrategy = Macro.ConflictStrategy.values()[buf.get()];
+        Macro.SendMode sendMode = Macro.SendMode.values()[buf.get()];
+        int spaceTicks = buf.getInt();
+        int noRepeatWindow = buf.getInt();
+        boolean splitMessages = buf.get() != 0;
+        Keybind keybind = readKeybind(buf);
+        Keybind altKeybind = readKeybind(buf);
+        int messageCount = buf.getInt();
+        List<Message> messages = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            boolean enabled = buf.get() != 0;
+            String string = readString(buf);
+            int delayTicks = buf.getInt();
+            int weight = buf.getInt();
+            messages.add(new Message(enabled, string, delayTicks, weight));
+        }
+        return new Macro(addToHistory, showHudMessage, resumeRepeating, useRatelimit,
+                conflictStrategy, sendMode, spaceTicks, 0, noRepeatWindow, splitMessages,
+                keybind, altKeybind, messages);
+    }
+
+    /**
+     * Writes a macro list encoded as part of a profile in the JSON form
+     * written by Gson, without decoding it. Unlike decoding, this does not
+     * resolve keys, so may be called on any thread. Only used for profiles
+     * loaded from the cache and not yet materialized.
+     *
+     * <p>Must be updated with any change to the serialized fields of
+     * {@link Macro}, {@link Keybind} or {@link Message}, as checked by
+     * {@code ConfigCacheTest}.</p>
+     */
+    static void writeMacrosJson(ByteBuffer buf, JsonWriter out) throws IOException {
+        int macroCount = buf.getInt();
+        out.beginArray();
+        for (int i = 0; i < macroCount; i++) {
+            out.beginObject();
+            out.name("version").value(Macro.VERSION);
+            out.name("addToHistory").value(buf.get() != 0);
+            out.name("showHudMessage").value(buf.get() != 0);
+            out.name("resumeRepeating").value(buf.get() != 0);
+            out.name("useRatelimit").value(buf.get() != 0);
+            out.name("conflictStrategy").value(Macro.ConflictStrategy.values()[buf.get()].name());
+            out.name("sendMode").value(Macro.SendMode.values()[buf.get()].name());
+            out.name("spaceTicks").value(buf.getInt());
+            out.name("noRepeatWindow").value(buf.getInt());
+            out.name("splitMessages").value(buf.get() != 0);
+            out.name("keybind");
+            writeKeybindJson(buf, out);
+            out.name("altKeybind");
+            writeKeybindJson(buf, out);
+            int messageCount = buf.getInt();
+            out.name("messages").beginArray();
+            for (int j = 0; j < messageCount; j++) {
+                out.beginObject();
+                out.name("version").value(Message.VERSION);
+                out.name("enabled").value(buf.get() != 0);
+                out.name("string").value(readString(buf));
+                out.name("delayTicks").value(buf.getInt());
+                out.name("weight").value(buf.getInt());
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private static void writeKeybindJson(ByteBuffer buf, JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("version").value(Keybind.VERSION);
+        out.name("keyName").value(readString(buf));
+        out.name("limitKeyName").value(readString(buf));
+        out.endObject();
+    }
+
+    private static Keybind readKeybind(ByteBuffer buf) {
+        return new Keybind(InputConstants.getKey(readString(buf)),
+                InputConstants.getKey(readString(buf)));
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import dev.terminalmc.commandkeys.CommandKeys;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32C;
+
+/**
+ * Watches the config directory on a background virtual thread for changes to
+ * the config file made outside the game, and reads the changed file with the
+ * streaming readers. Macros are not decoded, as that must happen on the client
+ * thread, so the client thread only has to swap in the new config.
+ *
+ * <p>Changes are ignored if the file content matches any of the most recent
+ * writes by the mod, as reported via {@link ConfigWatcher#ignore(long)}, or
+ * the content most recently parsed. Several writes are remembered, since the
+ * watcher may read the file after a write is reported but before it replaces
+ * the file, finding an earlier write.</p>
+ */
+class ConfigWatcher {
+    /**
+     * A config read from a changed config file.
+     * @param config the config, with no profile materialized.
+     * @param crc the CRC32C of the file content.
+     */
+    record Change(Config config, long crc) {}
+
+    /**
+     * Time to wait for further events after a change, since editors and
+     * tools may write a file in several steps.
+     */
+    private static final long SETTLE_MILLIS = 200;
+    /**
+     * Number of recent writes by the mod which are ignored.
+     */
+    private static final int IGNORED_WRITES = 4;
+
+    private final Path file;
+    private final AtomicReference<Change> pending = new AtomicReference<>();
+    private final long[] ignoredCrcs = new long[IGNORED_WRITES];
+    private int nextIgnored = 0;
+    private long lastCrc = -1;
+    private Thread worker = null;
+
+    ConfigWatcher(Path file) {
+        this.file = file;
+        // Not a valid CRC32C
+        Arrays.fill(ignoredCrcs, -1);
+    }
+
+    /**
+     * Starts watching, if not already started.
+     */
+    synchronized void start() {
+        if (worker != null) return;
+        worker = Thread.ofVirtual()
+                .name(CommandKeys.MOD_ID + "-config-watcher")
+                .start(this::run);
+    }
+
+    /**
+     * Marks content with the CRC32C {@code crc} as not an external change.
+     */
+    synchronized void ignore(long crc) {
+        ignoredCrcs[nextIgnored] = crc;
+        nextIgnored = (nextIgnored + 1) % IGNORED_WRITES;
+    }
+
+    private synchronized boolean isIgnored(long crc) {
+        for (long ignored : ignoredCrcs) {
+            if (ignored == crc) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the config read from the config file if it has changed since
+     * the last call, else {@code null}.
+     */
+    @Nullable Change poll() {
+        return pending.getAndSet(null);
+    }
+
+    private void run() {
+        Path dir = file.getParent();
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            Files.createDirectories(dir);
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                // Collect events until the directory has settled
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (file.getFileName().equals(event.context())) changed = true;
+                    }
+                    if (!key.reset()) return;
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed) read();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            CommandKeys.LOG.warn("Unable to watch config file for changes", e);
+        }
+    }
+
+    /**
+     * Reads the config file, unless its content is ignored.
+     */
+    void read() {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            if (crc.getValue() == lastCrc || isIgnored(crc.getValue())) return;
+            lastCrc = crc.getValue();
+            Config config = Config.GSON.fromJson(
+                    new String(bytes, StandardCharsets.UTF_8), Config.class);
+            if (config == null) return;
+            pending.set(new Change(config, crc.getValue()));
+            CommandKeys.LOG.info("Config file changed, reloading");
+        } catch (NoSuchFileException e) {
+            // Deleted or being replaced, wait for the next event
+        } catch (Exception e) {
+            // Catch Exception as errors in parsing may not fall under
+            // IOException or JsonParseException, but should not stop watching.
+            CommandKeys.LOG.warn("Unable to read changed config file", e);
+        }
+    }
+}
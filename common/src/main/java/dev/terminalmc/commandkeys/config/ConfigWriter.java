@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Serializes config snapshots and writes them to disk on a background virtual
+ * thread, followed by the {@link ConfigCache} if enabled. The JSON is
+ * streamed to the file without building a tree.
+ *
+ * <p>Only the most recent snapshot is retained, so a snapshot submitted while
+ * another is being written replaces any not yet started, and back-to-back
+ * saves coalesce into at most one further write.</p>
+ *
+ * <p>A config loaded from JSON can also be submitted to write only the cache,
+ * which is skipped if a full write is pending or the config file has changed
+ * since it was loaded.</p>
+ */
+class ConfigWriter {
+    private final Path file;
+    private final Path cacheFile;
+    private final Gson gson;
+    private final LongConsumer onWrite;
+
+    private final Object lock = new Object();
+    private Config pending = null;
+    private boolean pendingCacheOnly = false;
+    private long pendingJsonCrc = 0;
+    private Thread worker = null;
+
+    /**
+     * @param onWrite called with the CRC32C of the content of each write,
+     *                before the config file is replaced.
+     */
+    ConfigWriter(Path file, Path cacheFile, Gson gson, LongConsumer onWrite) {
+        this.file = file;
+        this.cacheFile = cacheFile;
+        this.gson = gson;
+        this.onWrite = onWrite;
+    }
+
+    /**
+     * Queues {@code snapshot} to be written, starting the writer thread if it
+     * is not already running. The binary cache is also written if enabled by
+     * the snapshot, else the cache file is deleted.
+     * @param snapshot a config which will not be modified after submission.
+     */
+    void submit(Config snapshot) {
+        synchronized(lock) {
+            pending = snapshot;
+            pendingCacheOnly = false;
+            startWorker();
+        }
+    }
+
+    /**
+     * Queues the cache of {@code snapshot} to be written, unless a full write
+     * is pending, without rewriting the config file.
+     * @param snapshot a config which will not be modified after submission.
+     * @param jsonCrc the CRC32C of the config file {@code snapshot} was
+     *                loaded from.
+     */
+    void submitCache(Config snapshot, long jsonCrc) {
+        synchronized(lock) {
+            if (pending != null && !pendingCacheOnly) return;
+            pending = snapshot;
+            pendingCacheOnly = true;
+            pendingJsonCrc = jsonCrc;
+            startWorker();
+        }
+    }
+
+    private void startWorker() {
+        if (worker == null) {
+            worker = Thread.ofVirtual()
+                    .name(CommandKeys.MOD_ID + "-config-writer")
+                    .start(this::run);
+        }
+    }
+
+    /**
+     * Blocks until all submitted snapshots have been written.
+     */
+    void flush() {
+        synchronized(lock) {
+            while (worker != null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Config snapshot;
+            boolean cacheOnly;
+            long jsonCrc;
+            synchronized(lock) {
+                snapshot = pending;
+                cacheOnly = pendingCacheOnly;
+                jsonCrc = pendingJsonCrc;
+                pending = null;
+                if (snapshot == null) {
+                    worker = null;
+                    lock.notifyAll();
+                    return;
+                }
+            }
+            if (cacheOnly) writeCache(snapshot, jsonCrc);
+            else write(snapshot);
+        }
+    }
+
+    private void write(Config snapshot) {
+        long start = Metrics.start();
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            CRC32C crc = new CRC32C();
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(Files.newOutputStream(tempFile), crc),
+                    StandardCharsets.UTF_8));
+                 JsonWriter jsonWriter = gson.newJsonWriter(writer)) {
+                gson.toJson(snapshot, Config.class, jsonWriter);
+            }
+            onWrite.accept(crc.getValue());
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            if (snapshot.getBinaryCache()) {
+                ConfigCache.write(cacheFile, file, crc.getValue(), ConfigCache.encode(snapshot));
+            } else {
+                Files.deleteIfExists(cacheFile);
+            }
+            Metrics.CONFIG_WRITE.recordSince(start);
+        } catch (Exception e) {
+            // Catch Exception as the writer thread has no other handler.
+            CommandKeys.LOG.error("Unable to save config", e);
+        }
+    }
+
+    private void writeCache(Config snapshot, long jsonCrc) {
+        try {
+            // The file may have been saved or edited since it was loaded
+            if (!Files.exists(file) || ConfigCache.crc(file) != jsonCrc) return;
+            ConfigCache.write(cacheFile, file, jsonCrc, ConfigCache.encode(snapshot));
+        } catch (Exception e) {
+            // Catch Exception as the writer thread has no other handler.
+            CommandKeys.LOG.error("Unable to save config cache", e);
+        }
+    }
+}
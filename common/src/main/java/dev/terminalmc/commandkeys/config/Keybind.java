@@ -16,11 +16,12 @@
 
 package dev.terminalmc.commandkeys.config;
 
-import com.google.gson.*;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 import com.mojang.blaze3d.platform.InputConstants;
-import net.minecraft.client.Minecraft;
+import dev.terminalmc.commandkeys.CommandKeys;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -28,7 +29,8 @@ import java.util.Objects;
  * and dual-key activation.
  */
 public class Keybind {
-    public final int version = 0;
+    static final int VERSION = 0;
+    public final int version = VERSION;
 
     private transient InputConstants.Key key;
     private String keyName;
@@ -68,19 +70,25 @@ public class Keybind {
     }
 
     public boolean isKeyDown() {
-        return !key.equals(InputConstants.UNKNOWN) && InputConstants.isKeyDown(
-                Minecraft.getInstance().getWindow().getWindow(), key.getValue());
+        return !key.equals(InputConstants.UNKNOWN) && CommandKeys.client.isKeyDown(key);
     }
 
     public boolean isLimitKeyDown() {
-        return !limitKey.equals(InputConstants.UNKNOWN) && InputConstants.isKeyDown(
-                Minecraft.getInstance().getWindow().getWindow(), limitKey.getValue());
+        return !limitKey.equals(InputConstants.UNKNOWN) && CommandKeys.client.isKeyDown(limitKey);
     }
     
     boolean isDown() {
         return isKeyDown() && (limitKey.equals(InputConstants.UNKNOWN) || isLimitKeyDown());
     }
 
+    /**
+     * @return a primitive code uniquely identifying {@code key}, for use as a
+     * lookup key.
+     */
+    public static int code(InputConstants.Key key) {
+        return key.getType().ordinal() << 16 | (key.getValue() & 0xFFFF);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
@@ -95,15 +103,31 @@ public class Keybind {
 
     // Deserialization
 
-    public static class Deserializer implements JsonDeserializer<Keybind> {
+    public static class Reader extends StreamingReader<Keybind> {
+        public Reader() {
+            super(Keybind.class);
+        }
+
         @Override
-        public Keybind deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx) 
-                throws JsonParseException {
-            JsonObject obj = json.getAsJsonObject();
-            int version = obj.get("version").getAsInt();
-            
-            InputConstants.Key key = InputConstants.getKey(obj.get("keyName").getAsString());
-            InputConstants.Key limitKey = InputConstants.getKey(obj.get("limitKeyName").getAsString());
+        Keybind read(JsonReader in, Gson gson) throws IOException {
+            Integer version = null;
+            String keyName = null;
+            String limitKeyName = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch(in.nextName()) {
+                    case "version" -> version = in.nextInt();
+                    case "keyName" -> keyName = in.nextString();
+                    case "limitKeyName" -> limitKeyName = in.nextString();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            require(version, "version");
+
+            InputConstants.Key key = InputConstants.getKey(require(keyName, "keyName"));
+            InputConstants.Key limitKey = InputConstants.getKey(require(limitKeyName, "limitKeyName"));
 
             return new Keybind(key, limitKey);
         }
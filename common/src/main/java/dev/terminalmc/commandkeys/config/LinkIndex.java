@@ -0,0 +1,319 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps the links of the profiles of a {@link Config} to the {@link Profile}
+ * which owns them, and resolves world names and server addresses to profiles.
+ *
+ * <p>A link is one of the following, where those other than world names may
+ * be followed by {@code :port} to match only that port:</p>
+ * <ul>
+ *     <li>A world name or server host, matched exactly, e.g.
+ *     {@code example.net}.</li>
+ *     <li>A wildcard pattern, matching all subdomains of a domain, e.g.
+ *     {@code *.example.net}.</li>
+ *     <li>An IPv4 range in CIDR notation, e.g. {@code 192.168.0.0/16}.</li>
+ * </ul>
+ *
+ * <p>Wildcard patterns are stored in a trie keyed by domain label in reverse
+ * order, and ranges in a binary trie keyed by address bit, so resolving an
+ * address costs time proportional to the number of labels in the host,
+ * regardless of the number of links.</p>
+ *
+ * <p>Server addresses resolve to the first of: an exact host and port link,
+ * an exact host link, the most specific matching wildcard pattern, the most
+ * specific matching range. Port-specific patterns and ranges take priority
+ * over others of equal specificity.</p>
+ *
+ * <p>Different links may be equivalent patterns, e.g. differing only in case,
+ * or ranges differing only in host bits. The first such link registered
+ * takes effect, and the tries are rebuilt when a pattern is removed or
+ * changes owner, so that the others take over.</p>
+ */
+public class LinkIndex {
+    private static final int ANY_PORT = -1;
+
+    private final Map<String, Profile> owners = new LinkedHashMap<>();
+    private LabelNode labelRoot = new LabelNode();
+    private BitNode bitRoot = new BitNode();
+
+    // Ownership
+
+    /**
+     * @return the profile which owns {@code link}, or {@code null} if none
+     * does.
+     */
+    public @Nullable Profile get(String link) {
+        return owners.get(link);
+    }
+
+    /**
+     * Sets the owner of {@code link} to {@code profile}, if it does not
+     * already have an owner.
+     * @return {@code true} if the owner was set.
+     */
+    boolean putIfAbsent(String link, Profile profile) {
+        if (owners.putIfAbsent(link, profile) != null) return false;
+        index(link, profile);
+        return true;
+    }
+
+    /**
+     * Sets the owner of {@code link} to {@code profile}, replacing any
+     * existing owner.
+     */
+    void put(String link, Profile profile) {
+        Profile previous = owners.put(link, profile);
+        if (previous == null) index(link, profile);
+        else if (previous != profile && isPattern(link)) rebuild();
+    }
+
+    /**
+     * Removes {@code link}, if it is owned by {@code profile}.
+     */
+    void remove(String link, Profile profile) {
+        if (owners.remove(link, profile) && isPattern(link)) rebuild();
+    }
+
+    // Resolution
+
+    /**
+     * @return the profile linked to the world, or {@code null} if there is
+     * none.
+     */
+    public @Nullable Profile findWorld(String levelId) {
+        return owners.get(levelId);
+    }
+
+    /**
+     * @return the profile linked to the server address, or {@code null} if
+     * there is none.
+     */
+    public @Nullable Profile findServer(String host, int port) {
+        Profile profile = owners.get(host + ":" + port);
+        if (profile != null) return profile;
+        profile = owners.get(host);
+        if (profile != null) return profile;
+
+        host = normalize(host);
+        long address = parseIpv4(host);
+        if (address == -1) {
+            return findPattern(host, port);
+        } else {
+            return findRange((int)address, port);
+        }
+    }
+
+    private @Nullable Profile findPattern(String host, int port) {
+        LabelNode node = labelRoot;
+        Profile match = null;
+        int end = host.length();
+        while (end > 0) {
+            int start = host.lastIndexOf('.', end - 1) + 1;
+            node = node.children.get(host.substring(start, end));
+            // Patterns only match subdomains, so the first label is excluded
+            if (node == null || start == 0) break;
+            Profile profile = node.get(port);
+            if (profile != null) match = profile;
+            end = start - 1;
+        }
+        return match;
+    }
+
+    private @Nullable Profile findRange(int address, int port) {
+        BitNode node = bitRoot;
+        Profile match = node.get(port);
+        for (int i = 31; i >= 0; i--) {
+            node = node.children[(address >>> i) & 1];
+            if (node == null) break;
+            Profile profile = node.get(port);
+            if (profile != null) match = profile;
+        }
+        return match;
+    }
+
+    // Parsing
+
+    /**
+     * @return {@code true} if {@code link} is a valid wildcard pattern or
+     * range, {@code false} if it can only be matched exactly.
+     */
+    public static boolean isPattern(String link) {
+        return parse(link) != null;
+    }
+
+    /**
+     * Discards the pattern tries and re-adds the patterns of all links, in
+     * registration order.
+     */
+    private void rebuild() {
+        labelRoot = new LabelNode();
+        bitRoot = new BitNode();
+        owners.forEach(this::index);
+    }
+
+    /**
+     * Adds {@code link} to the pattern tries, if it is a pattern and no
+     * equivalent pattern has been added.
+     */
+    private void index(String link, Profile profile) {
+        Pattern pattern = parse(link);
+        if (pattern == null) return;
+        if (pattern.prefixLength == -1) {
+            LabelNode node = labelRoot;
+            String domain = pattern.host.substring(2);
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.computeIfAbsent(domain.substring(start, end),
+                        (label) -> new LabelNode());
+                end = start - 1;
+            }
+            node.setIfAbsent(pattern.port, profile);
+        } else {
+            BitNode node = bitRoot;
+            int address = (int)parseIpv4(pattern.host);
+            for (int i = 31; i >= 32 - pattern.prefixLength; i--) {
+                int bit = (address >>> i) & 1;
+                if (node.children[bit] == null) node.children[bit] = new BitNode();
+                node = node.children[bit];
+            }
+            node.setIfAbsent(pattern.port, profile);
+        }
+    }
+
+    /**
+     * @param host the normalized wildcard pattern or range address.
+     * @param prefixLength the range prefix length, or -1 for a wildcard
+     *                     pattern.
+     * @param port the port, or {@link LinkIndex#ANY_PORT}.
+     */
+    private record Pattern(String host, int prefixLength, int port) {}
+
+    private static @Nullable Pattern parse(String link) {
+        String host = normalize(link);
+        int port = ANY_PORT;
+        int colon = host.lastIndexOf(':');
+        if (colon != -1) {
+            port = parsePort(host.substring(colon + 1));
+            if (port == -1) return null;
+            host = host.substring(0, colon);
+        }
+        if (host.startsWith("*.")) {
+            String domain = host.substring(2);
+            if (domain.isEmpty() || domain.startsWith(".") || domain.contains("..")
+                    || domain.contains("*")) return null;
+            return new Pattern(host, -1, port);
+        }
+        int slash = host.indexOf('/');
+        if (slash != -1) {
+            String prefix = host.substring(slash + 1);
+            host = host.substring(0, slash);
+            if (parseIpv4(host) == -1 || prefix.isEmpty() || prefix.length() > 2
+                    || !prefix.chars().allMatch(Character::isDigit)) return null;
+            int prefixLength = Integer.parseInt(prefix);
+            if (prefixLength > 32) return null;
+            return new Pattern(host, prefixLength, port);
+        }
+        return null;
+    }
+
+    private static String normalize(String host) {
+        host = host.strip().toLowerCase(Locale.ROOT);
+        return host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+    }
+
+    /**
+     * @return the port, or -1 if {@code str} is not a valid port.
+     */
+    private static int parsePort(String str) {
+        if (str.isEmpty() || str.length() > 5 || !str.chars().allMatch(Character::isDigit))
+            return -1;
+        int port = Integer.parseInt(str);
+        return port <= 65535 ? port : -1;
+    }
+
+    /**
+     * @return the address as an unsigned value, or -1 if {@code str} is not a
+     * dotted-quad IPv4 address.
+     */
+    private static long parseIpv4(String str) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= str.length(); i++) {
+            char c = i < str.length() ? str.charAt(i) : '.';
+            if (c == '.') {
+                if (value == -1 || ++octets > 4) return -1;
+                address = (address << 8) | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value == -1 ? 0 : value * 10) + (c - '0');
+                if (value > 255) return -1;
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    // Tries
+
+    private static class Targets {
+        private @Nullable Profile any;
+        private @Nullable Int2ObjectMap<Profile> ports;
+
+        /**
+         * @return the profile for {@code port}, else for any port, else
+         * {@code null}.
+         */
+        @Nullable Profile get(int port) {
+            if (ports != null) {
+                Profile profile = ports.get(port);
+                if (profile != null) return profile;
+            }
+            return any;
+        }
+
+        void setIfAbsent(int port, Profile profile) {
+            if (port == ANY_PORT) {
+                if (any == null) any = profile;
+            } else {
+                if (ports == null) ports = new Int2ObjectOpenHashMap<>();
+                ports.putIfAbsent(port, profile);
+            }
+        }
+    }
+
+    private static class LabelNode extends Targets {
+        private final Map<String, LabelNode> children = new HashMap<>();
+    }
+
+    private static class BitNode extends Targets {
+        private final BitNode[] children = new BitNode[2];
+    }
+}
@@ -16,25 +16,32 @@
 
 package dev.terminalmc.commandkeys.config;
 
-import com.google.gson.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.mojang.blaze3d.platform.InputConstants;
 import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.MessageScheduler;
+import dev.terminalmc.commandkeys.util.Metrics;
+import dev.terminalmc.commandkeys.util.PlaceholderUtil;
+import dev.terminalmc.commandkeys.util.WeightedRandom;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Consists of behavioral options, a primary and alternate {@link Keybind}, and 
  * a list of {@link Message} instances.
  */
 public class Macro {
-    public final int version = 5;
-
-    public static final Random RANDOM = new Random();
+    static final int VERSION = 7;
+    public final int version = VERSION;
 
     boolean addToHistory;
     public transient boolean addToHistoryStatus;
@@ -66,11 +73,20 @@ public class Macro {
     /**
      * Standard delay between messages when sending.
      */
-    public int spaceTicks;
+    int spaceTicks;
     /**
      * Index of next message forwards when cycling.
      */
     public transient int cycleIndex;
+    /**
+     * Number of most recently sent messages excluded when choosing at random.
+     */
+    int noRepeatWindow;
+    /**
+     * Whether messages are split into multiple messages at each
+     * {@link Message#SEGMENT_SEPARATOR}.
+     */
+    boolean splitMessages;
 
     Keybind keybind;
     Keybind altKeybind;
@@ -86,10 +102,12 @@ public class Macro {
                 false,
                 false,
                 false,
-                Config.get().defaultConflictStrategy,
-                Config.get().defaultSendMode,
+                Config.get().getDefaultConflictStrategy(),
+                Config.get().getDefaultSendMode(),
                 0,
                 0,
+                0,
+                true,
                 new Keybind(),
                 new Keybind(),
                 new ArrayList<>()
@@ -97,9 +115,9 @@ public class Macro {
     }
 
     /**
-     * Not validated, only for use by self-validating deserializer.
+     * Not validated, only for use by self-validating readers.
      */
-    private Macro(
+    Macro(
             boolean addToHistory,
             boolean showHudMessage,
             boolean resumeRepeating,
@@ -108,6 +126,8 @@ public class Macro {
             SendMode sendMode,
             int spaceTicks,
             int cycleIndex,
+            int noRepeatWindow,
+            boolean splitMessages,
             Keybind keybind,
             Keybind altKeybind,
             List<Message> messages
@@ -120,11 +140,40 @@ public class Macro {
         this.sendMode = sendMode;
         this.spaceTicks = spaceTicks;
         this.cycleIndex = cycleIndex;
+        this.noRepeatWindow = noRepeatWindow;
+        this.splitMessages = splitMessages;
         this.keybind = keybind;
         this.altKeybind = altKeybind;
         this.messages = messages;
     }
 
+    /**
+     * Copy constructor for snapshots. The copy has the same persistent state
+     * and shares no mutable state, but has no scheduled messages or cycle
+     * position.
+     */
+    Macro(Macro macro) {
+        this(
+                macro.addToHistory,
+                macro.showHudMessage,
+                macro.resumeRepeating,
+                macro.useRatelimit,
+                macro.conflictStrategy,
+                macro.sendMode,
+                macro.spaceTicks,
+                0,
+                macro.noRepeatWindow,
+                macro.splitMessages,
+                new Keybind(macro.keybind.getKey(), macro.keybind.getLimitKey()),
+                new Keybind(macro.altKeybind.getKey(), macro.altKeybind.getLimitKey()),
+                new ArrayList<>(macro.messages.size())
+        );
+        for (Message message : macro.messages) {
+            messages.add(new Message(message.isEnabled(), message.string, 
+                    message.delayTicks, message.weight));
+        }
+    }
+
     public boolean getAddToHistory() {
         return addToHistory;
     }
@@ -149,6 +198,35 @@ public class Macro {
         return sendMode;
     }
 
+    public int getSpaceTicks() {
+        return spaceTicks;
+    }
+
+    public void setSpaceTicks(int spaceTicks) {
+        if (spaceTicks == this.spaceTicks) return;
+        this.spaceTicks = spaceTicks;
+        Config.markDirty();
+    }
+
+    public int getNoRepeatWindow() {
+        return noRepeatWindow;
+    }
+
+    public void setNoRepeatWindow(int noRepeatWindow) {
+        this.noRepeatWindow = noRepeatWindow;
+        invalidateRandom();
+        Config.markDirty();
+    }
+
+    public boolean getSplitMessages() {
+        return splitMessages;
+    }
+
+    public void setSplitMessages(boolean splitMessages) {
+        this.splitMessages = splitMessages;
+        Config.markDirty();
+    }
+
     public Keybind getKeybind() {
         return keybind;
     }
@@ -182,14 +260,32 @@ public class Macro {
 
     public void addMessage(Message message) {
         this.messages.add(message);
+        invalidateRandom();
+        Config.markDirty();
     }
 
     public void setMessage(int index, String str) {
+        if (str.equals(this.messages.get(index).string)) return;
         this.messages.get(index).string = str;
+        Config.markDirty();
+    }
+
+    public void setDelay(int index, int delayTicks) {
+        if (delayTicks == this.messages.get(index).delayTicks) return;
+        this.messages.get(index).delayTicks = delayTicks;
+        Config.markDirty();
+    }
+
+    public void setWeight(int index, int weight) {
+        this.messages.get(index).weight = weight;
+        invalidateRandom();
+        Config.markDirty();
     }
 
     public void removeMessage(int index) {
         this.messages.remove(index);
+        invalidateRandom();
+        Config.markDirty();
     }
 
     /**
@@ -200,12 +296,49 @@ public class Macro {
     public void moveMessage(int sourceIndex, int destIndex) {
         if (sourceIndex != destIndex) {
             messages.add(destIndex, messages.remove(sourceIndex));
+            invalidateRandom();
+            Config.markDirty();
+        }
+    }
+
+    // Random selection
+
+    private transient final SplittableRandom randomSource = new SplittableRandom();
+    private transient @Nullable WeightedRandom random;
+
+    /**
+     * Discards the weighted selector, to be rebuilt on next use. Must be
+     * called whenever the messages or their weights change.
+     */
+    void invalidateRandom() {
+        random = null;
+    }
+
+    /**
+     * @return the index of a message chosen at random according to message
+     * weights and the no-repeat window. Must not be called if there are no
+     * messages.
+     */
+    private int nextRandomIndex() {
+        if (random == null) {
+            int[] weights = new int[messages.size()];
+            for (int i = 0; i < weights.length; i++) weights[i] = messages.get(i).weight;
+            random = new WeightedRandom(weights, noRepeatWindow, randomSource);
         }
+        return random.next();
     }
 
     // Activation
 
     public void trigger(@Nullable Keybind trigger) {
+        trigger(trigger, 0);
+    }
+
+    /**
+     * @param pressed the time of the key-press, from {@link Metrics#start()},
+     *                recorded against each message when it is sent.
+     */
+    public void trigger(@Nullable Keybind trigger, long pressed) {
         if (hasRepeating()) {
             stopRepeating();
             return;
@@ -218,13 +351,15 @@ public class Macro {
                 int cumulativeDelay = standardDelay ? -spaceTicks : 0;
                 for (Message msg : messages) {
                     cumulativeDelay += standardDelay ? spaceTicks : msg.delayTicks;
-                    schedule(cumulativeDelay, -1, msg.string,
-                            addToHistoryStatus, showHudMessageStatus);
+                    for (PlaceholderUtil.Template segment : msg.getSegments(splitMessages)) {
+                        schedule(cumulativeDelay, -1, segment,
+                                addToHistoryStatus, showHudMessageStatus, pressed);
+                    }
                 }
             }
             case TYPE -> {
                 if (!messages.isEmpty()) {
-                    CommandKeys.type(messages.getFirst().string);
+                    CommandKeys.type(messages.getFirst().getTemplate());
                 }
             }
             case CYCLE -> {
@@ -235,17 +370,17 @@ public class Macro {
                     if (++cycleIndex >= messages.size()) cycleIndex = 0;
                 }
                 // Allow spacer blank messages, and multiple messages per press.
-                for (String msg : messages.get(cycleIndex).string.split(",,")) {
-                    if (!msg.isBlank()) {
-                        CommandKeys.send(msg, addToHistoryStatus, showHudMessageStatus);
-                    }
+                for (PlaceholderUtil.Template segment : messages.get(cycleIndex).getSegments(splitMessages)) {
+                    CommandKeys.send(false, segment, addToHistoryStatus,
+                            showHudMessageStatus, pressed);
                 }
             }
             case RANDOM -> {
                 if (!messages.isEmpty()) {
-                    Message msg = messages.get(RANDOM.nextInt(messages.size()));
-                    if (!msg.string.isBlank()) {
-                        CommandKeys.send(msg.string, addToHistoryStatus, showHudMessageStatus);
+                    Message msg = messages.get(nextRandomIndex());
+                    for (PlaceholderUtil.Template segment : msg.getSegments(splitMessages)) {
+                        CommandKeys.send(false, segment, addToHistoryStatus,
+                                showHudMessageStatus, pressed);
                     }
                 }
             }
@@ -253,8 +388,10 @@ public class Macro {
                 int cumulativeDelay = 0;
                 for (Message msg : messages) {
                     cumulativeDelay += msg.delayTicks;
-                    schedule(cumulativeDelay, spaceTicks, msg.string,
-                            addToHistoryStatus, showHudMessageStatus);
+                    for (PlaceholderUtil.Template segment : msg.getSegments(splitMessages)) {
+                        schedule(cumulativeDelay, spaceTicks, segment,
+                                addToHistoryStatus, showHudMessageStatus, pressed);
+                    }
                 }
             }
         }
@@ -262,125 +399,211 @@ public class Macro {
 
     // Scheduling
 
-    private transient final List<ScheduledMessage> scheduledMessages = new ArrayList<>();
+    private transient MessageScheduler.Group scheduled = new MessageScheduler.Group();
+
+    /**
+     * @return the group containing all messages scheduled by this macro.
+     */
+    public MessageScheduler.Group getScheduled() {
+        return scheduled;
+    }
     
     public void clearScheduled() {
-        scheduledMessages.clear();
+        CommandKeys.SCHEDULER.cancel(scheduled, false);
     }
 
     public boolean hasRepeating() {
-        for (ScheduledMessage msg : scheduledMessages) {
-            if (msg.repeatDelay != -1) return true;
-        }
-        return false;
+        return scheduled.hasRepeating();
     }
 
     public void stopRepeating() {
-        scheduledMessages.removeIf((msg) -> msg.repeatDelay != -1);
+        CommandKeys.SCHEDULER.cancel(scheduled, true);
     }
 
-    private void schedule(int initialDelay, int repeatDelay, String message,
-                          boolean addToHistory, boolean showHudMsg) {
-        scheduledMessages.add(new ScheduledMessage(initialDelay, repeatDelay, message,
-                addToHistory, showHudMsg));
+    /**
+     * @return {@code true} if {@code other} has the same persistent state as
+     * this macro, {@code false} otherwise.
+     */
+    boolean isEquivalent(Macro other) {
+        if (addToHistory != other.addToHistory || showHudMessage != other.showHudMessage
+                || resumeRepeating != other.resumeRepeating || useRatelimit != other.useRatelimit
+                || conflictStrategy != other.conflictStrategy || sendMode != other.sendMode
+                || spaceTicks != other.spaceTicks || noRepeatWindow != other.noRepeatWindow
+                || splitMessages != other.splitMessages
+                || !keybind.equals(other.keybind)
+                || !altKeybind.equals(other.altKeybind)
+                || messages.size() != other.messages.size()) return false;
+        for (int i = 0; i < messages.size(); i++) {
+            Message msg = messages.get(i);
+            Message otherMsg = other.messages.get(i);
+            if (msg.isEnabled() != otherMsg.isEnabled() || msg.delayTicks != otherMsg.delayTicks
+                    || msg.weight != otherMsg.weight || !msg.string.equals(otherMsg.string)) return false;
+        }
+        return true;
     }
 
-    public void tick() {
-        scheduledMessages.removeIf(ScheduledMessage::tick);
+    /**
+     * Takes over the scheduled messages and cycle position of {@code old},
+     * which is being replaced by this macro.
+     */
+    void adoptState(Macro old) {
+        scheduled = old.scheduled;
+        cycleIndex = old.cycleIndex;
     }
 
-    private static class ScheduledMessage {
-        private int delay;
-        final int repeatDelay;
-        final String message;
-        final boolean showHudMessage;
-        final boolean addToHistory;
-
-        public ScheduledMessage(int initialDelay, int repeatDelay, String message,
-                                boolean showHudMessage, boolean addToHistory) {
-            this.delay = initialDelay;
-            this.repeatDelay = repeatDelay;
-            this.message = message;
-            this.showHudMessage = showHudMessage;
-            this.addToHistory = addToHistory;
-        }
-
-        /**
-         * @return {@code true} if this {@link ScheduledMessage} has finished
-         * ticking, {@code false} otherwise.
-         */
-        private boolean tick() {
-            if (--delay <= 0) {
-                CommandKeys.send(message, showHudMessage, addToHistory);
-                if (repeatDelay != -1) delay = repeatDelay;
-                else return true;
-            }
-            return false;
-        }
+    private void schedule(int initialDelay, int repeatDelay, PlaceholderUtil.Template message,
+                          boolean addToHistory, boolean showHudMsg, long pressed) {
+        CommandKeys.SCHEDULER.schedule(scheduled, initialDelay, repeatDelay, message,
+                addToHistory, showHudMsg, pressed);
     }
 
     // Deserialization
 
-    public static class Deserializer implements JsonDeserializer<Macro> {
+    public static class Reader extends StreamingReader<Macro> {
+        public Reader() {
+            super(Macro.class);
+        }
+
         @Override
-        public Macro deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-                throws JsonParseException {
-            JsonObject obj = json.getAsJsonObject();
-            int version = obj.has("version") ? obj.get("version").getAsInt() : 0;
-
-            boolean addToHistory = version >= 3 ? obj.get("addToHistory").getAsBoolean() : false;
-            boolean showHudMessage = version >= 3 ? obj.get("showHudMessage").getAsBoolean() : false;
-            boolean resumeRepeating = version >= 5 ? obj.get("resumeRepeating").getAsBoolean() : false;
-            boolean useRatelimit = version >= 4 ? obj.get("useRatelimit").getAsBoolean() : false;
-
-            ConflictStrategy conflictStrategy = version >= 3
-                    ? ConflictStrategy.valueOf(obj.get("conflictStrategy").getAsString())
-                    : getConflictStrategy(obj.get("conflictStrategy").getAsString());
-            SendMode sendMode = version >= 3
-                    ? SendMode.valueOf(obj.get("sendMode").getAsString())
-                    : getSendMode(obj.get("sendStrategy").getAsString());
-
-            int spaceTicks = version >= 1 ? obj.get("spaceTicks").getAsInt() : 0;
-            
-            Keybind keybind = version >= 4
-                    ? ctx.deserialize(obj.get("keybind"), Keybind.class)
-                    : version == 3 
+        Macro read(JsonReader in, Gson gson) throws IOException {
+            TypeAdapter<Keybind> keybindAdapter = gson.getAdapter(Keybind.class);
+            TypeAdapter<Message> messageAdapter = gson.getAdapter(Message.class);
+            Integer version = null;
+            Boolean addToHistory = null;
+            Boolean showHudMessage = null;
+            Boolean resumeRepeating = null;
+            Boolean useRatelimit = null;
+            String conflictStrategyName = null;
+            String sendModeName = null;
+            String sendStrategyName = null;
+            Integer spaceTicks = null;
+            Integer noRepeatWindow = null;
+            Boolean splitMessages = null;
+            Keybind keybind = null;
+            Keybind altKeybind = null;
+            String keyName = null;
+            String limitKeyName = null;
+            String legacyKeyName = null;
+            String legacyLimitKeyName = null;
+            List<Message> messages = null;
+            boolean hasLegacyMessages = false;
+            boolean hasMessages = false;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch(in.nextName()) {
+                    case "version" -> version = in.nextInt();
+                    case "addToHistory" -> addToHistory = in.nextBoolean();
+                    case "showHudMessage" -> showHudMessage = in.nextBoolean();
+                    case "resumeRepeating" -> resumeRepeating = in.nextBoolean();
+                    case "useRatelimit" -> useRatelimit = in.nextBoolean();
+                    case "conflictStrategy" -> conflictStrategyName = in.nextString();
+                    case "sendMode" -> sendModeName = in.nextString();
+                    case "sendStrategy" -> sendStrategyName = in.nextString();
+                    case "spaceTicks" -> spaceTicks = in.nextInt();
+                    case "noRepeatWindow" -> noRepeatWindow = in.nextInt();
+                    case "splitMessages" -> splitMessages = in.nextBoolean();
+                    case "keybind" -> keybind = keybindAdapter.read(in);
+                    case "altKeybind" -> altKeybind = keybindAdapter.read(in);
+                    case "keyName" -> keyName = in.nextString();
+                    case "limitKeyName" -> limitKeyName = in.nextString();
+                    case "key" -> legacyKeyName = readLegacyKeyName(in);
+                    case "limitKey" -> legacyLimitKeyName = readLegacyKeyName(in);
+                    case "messages" -> {
+                        messages = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            Message message;
+                            if (in.peek() == JsonToken.STRING) {
+                                message = new Message(true, in.nextString(), 0, 1);
+                                hasLegacyMessages = true;
+                            } else {
+                                message = messageAdapter.read(in);
+                                hasMessages = true;
+                            }
+                            if (message != null) messages.add(message);
+                        }
+                        in.endArray();
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            int v = version != null ? version : 0;
+
+            boolean history = v >= 3 ? require(addToHistory, "addToHistory") : false;
+            boolean hud = v >= 3 ? require(showHudMessage, "showHudMessage") : false;
+            boolean resume = v >= 5 ? require(resumeRepeating, "resumeRepeating") : false;
+            boolean ratelimit = v >= 4 ? require(useRatelimit, "useRatelimit") : false;
+
+            ConflictStrategy conflictStrategy = v >= 3
+                    ? ConflictStrategy.valueOf(require(conflictStrategyName, "conflictStrategy"))
+                    : getConflictStrategy(require(conflictStrategyName, "conflictStrategy"));
+            SendMode sendMode = v >= 3
+                    ? SendMode.valueOf(require(sendModeName, "sendMode"))
+                    : getSendMode(require(sendStrategyName, "sendStrategy"));
+
+            int space = v >= 1 ? require(spaceTicks, "spaceTicks") : 0;
+            int window = v >= 6 ? require(noRepeatWindow, "noRepeatWindow") : 0;
+            // Only cycle mode split messages before version 7
+            boolean split = v >= 7
+                    ? require(splitMessages, "splitMessages")
+                    : sendMode.equals(SendMode.CYCLE);
+
+            if (v >= 4) {
+                keybind = require(keybind, "keybind");
+                altKeybind = require(altKeybind, "altKeybind");
+            } else {
+                keybind = v == 3
                         ? new Keybind(
-                            InputConstants.getKey(obj.get("keyName").getAsString()), 
-                            InputConstants.getKey(obj.get("limitKeyName").getAsString()))
+                            InputConstants.getKey(require(keyName, "keyName")),
+                            InputConstants.getKey(require(limitKeyName, "limitKeyName")))
                         : new Keybind(
-                            InputConstants.getKey(obj.getAsJsonObject("key").get("name").getAsString()),
-                            InputConstants.getKey(obj.getAsJsonObject("limitKey").get("name").getAsString()));
-            Keybind altKeybind = version >= 4 
-                    ? ctx.deserialize(obj.get("altKeybind"), Keybind.class) 
-                    : new Keybind();
-            
-            List<Message> messages = new ArrayList<>();
-            for (JsonElement je : obj.getAsJsonArray("messages")) {
-                Message message = version >= 2
-                        ? ctx.deserialize(je, Message.class)
-                        : new Message(true, je.getAsString(), 0);
-                if (message != null) messages.add(message);
+                            InputConstants.getKey(require(legacyKeyName, "key")),
+                            InputConstants.getKey(require(legacyLimitKeyName, "limitKey")));
+                altKeybind = new Keybind();
+            }
+
+            messages = require(messages, "messages");
+            if (v >= 2 ? hasLegacyMessages : hasMessages) {
+                throw new JsonParseException("Macro Error: message format does not match version");
             }
 
             // Validate
-            if (spaceTicks < 0) throw new JsonParseException("Macro Error: spaceTicks < 0");
+            if (space < 0) throw new JsonParseException("Macro Error: spaceTicks < 0");
+            if (window < 0) throw new JsonParseException("Macro Error: noRepeatWindow < 0");
 
             return new Macro(
-                    addToHistory,
-                    showHudMessage,
-                    resumeRepeating,
-                    useRatelimit,
+                    history,
+                    hud,
+                    resume,
+                    ratelimit,
                     conflictStrategy,
                     sendMode,
-                    spaceTicks,
+                    space,
                     0,
+                    window,
+                    split,
                     keybind,
                     altKeybind,
                     messages
             );
         }
 
+        /**
+         * Reads the name of a legacy serialized {@link InputConstants.Key}.
+         */
+        private static @Nullable String readLegacyKeyName(JsonReader in) throws IOException {
+            String name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("name")) name = in.nextString();
+                else in.skipValue();
+            }
+            in.endObject();
+            return name;
+        }
+
         public static ConflictStrategy getConflictStrategy(String str) {
             return switch(str) {
                 case "ZERO" -> ConflictStrategy.SUBMIT;
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The undecoded {@link Macro} list of a {@link Profile} which has not been
+ * used since the config was loaded.
+ *
+ * <p>Decoding is deferred until the profile is activated or opened for
+ * editing, so that startup time and memory use scale with the number of
+ * profiles actually used rather than the number in the config.</p>
+ */
+sealed interface MacroBlob {
+    /**
+     * @return a new list of newly-decoded macros.
+     */
+    List<Macro> decode() throws IOException;
+
+    /**
+     * Writes the macro list in the form written to the config file. Does not
+     * decode the macros, so may be called on any thread.
+     */
+    void write(JsonWriter out) throws IOException;
+
+    /**
+     * Macros read from the config file.
+     * @param text the compact JSON text of the macro array.
+     */
+    record Json(String text) implements MacroBlob {
+        /**
+         * Copies the next value of {@code in}, without building a tree.
+         */
+        static Json read(JsonReader in) throws IOException {
+            StringWriter text = new StringWriter();
+            StreamingReader.copy(in, new JsonWriter(text));
+            return new Json(text.toString());
+        }
+
+        @Override
+        public List<Macro> decode() throws IOException {
+            TypeAdapter<Macro> adapter = Config.GSON.getAdapter(Macro.class);
+            List<Macro> macros = new ArrayList<>();
+            JsonReader in = new JsonReader(new StringReader(text));
+            in.beginArray();
+            while (in.hasNext()) {
+                Macro macro = adapter.read(in);
+                if (macro != null) macros.add(macro);
+            }
+            in.endArray();
+            return macros;
+        }
+
+        @Override
+        public void write(JsonWriter out) throws IOException {
+            StreamingReader.copy(new JsonReader(new StringReader(text)), out);
+        }
+    }
+
+    /**
+     * Macros read from the {@link ConfigCache}.
+     * @param bytes the encoded macro list, which will not be modified.
+     */
+    record Binary(byte[] bytes) implements MacroBlob {
+        @Override
+        public List<Macro> decode() {
+            return ConfigCache.readMacros(ByteBuffer.wrap(bytes));
+        }
+
+        @Override
+        public void write(JsonWriter out) throws IOException {
+            ConfigCache.writeMacrosJson(ByteBuffer.wrap(bytes), out);
+        }
+    }
+}
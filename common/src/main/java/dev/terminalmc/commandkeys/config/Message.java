@@ -16,18 +16,30 @@
 
 package dev.terminalmc.commandkeys.config;
 
-import com.google.gson.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.PlaceholderUtil;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Message {
-    public final int version = 1;
+    static final int VERSION = 2;
+    public final int version = VERSION;
+
+    public static final int MAX_WEIGHT = 9999;
 
     private boolean enabled; // v1 parity
     public String string;
     public int delayTicks;
+    /**
+     * Relative chance of being chosen in {@link Macro.SendMode#RANDOM} mode.
+     */
+    int weight;
 
     /**
      * Creates a default instance.
@@ -36,33 +48,136 @@ public class Message {
         enabled = true;
         string = "";
         delayTicks = 0;
+        weight = 1;
     }
 
     /**
-     * Not validated, only for use by self-validating deserializer.
+     * Not validated, only for use by self-validating readers.
      */
-    Message(boolean enabled, String string, int delayTicks) {
+    Message(boolean enabled, String string, int delayTicks, int weight) {
         this.enabled = enabled;
         this.string = string;
         this.delayTicks = delayTicks;
+        this.weight = weight;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    // Placeholder templates
+
+    /**
+     * Separates multiple messages to be sent by a single key-press, if the
+     * macro splits messages.
+     */
+    public static final String SEGMENT_SEPARATOR = ",,";
+
+    private transient @Nullable String compiledString;
+    private transient PlaceholderUtil.Template template;
+    private transient PlaceholderUtil.Template[] whole;
+    private transient PlaceholderUtil.Template[] segments;
+
+    /**
+     * @return the compiled template of {@link Message#string}, recompiled only
+     * if the string has been replaced since the last call.
+     */
+    public PlaceholderUtil.Template getTemplate() {
+        compile();
+        return template;
+    }
+
+    /**
+     * @param split whether to split {@link Message#string} into segments
+     *              separated by {@link Message#SEGMENT_SEPARATOR}.
+     * @return the compiled templates of the non-blank segments of
+     * {@link Message#string}, or of the whole string if not split and not
+     * blank, recompiled only if the string has been replaced since the last
+     * call. Must not be modified.
+     */
+    public PlaceholderUtil.Template[] getSegments(boolean split) {
+        compile();
+        return split ? segments : whole;
+    }
+
+    private void compile() {
+        if (compiledString == string) return;
+        template = PlaceholderUtil.compile(string);
+        whole = string.isBlank()
+                ? new PlaceholderUtil.Template[0]
+                : new PlaceholderUtil.Template[]{template};
+        segments = string.contains(SEGMENT_SEPARATOR) ? split(string) : whole;
+        compiledString = string;
     }
 
-    public static class Deserializer implements JsonDeserializer<Message> {
+    private static PlaceholderUtil.Template[] split(String string) {
+        List<PlaceholderUtil.Template> segments = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            int end = string.indexOf(SEGMENT_SEPARATOR, start);
+            String segment = string.substring(start, end == -1 ? string.length() : end);
+            if (!segment.isBlank()) segments.add(PlaceholderUtil.compile(segment));
+            if (end == -1) break;
+            start = end + SEGMENT_SEPARATOR.length();
+        }
+        return segments.toArray(PlaceholderUtil.Template[]::new);
+    }
+
+    public static class Reader extends StreamingReader<Message> {
+        public Reader() {
+            super(Message.class);
+        }
+
+        /**
+         * Invalid messages are logged and skipped rather than failing the 
+         * whole config, so errors in individual values are caught here.
+         */
         @Override
-        public @Nullable Message deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-                throws JsonParseException {
-            JsonObject obj = json.getAsJsonObject();
+        @Nullable Message read(JsonReader in, Gson gson) throws IOException {
+            Integer version = null;
+            Boolean enabled = null;
+            String string = null;
+            Integer delayTicks = null;
+            Integer weight = null;
+            boolean invalid = false;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                try {
+                    switch(name) {
+                        case "version" -> version = in.nextInt();
+                        case "enabled" -> enabled = in.nextBoolean();
+                        case "string" -> string = in.nextString();
+                        case "delayTicks" -> delayTicks = in.nextInt();
+                        case "weight" -> weight = in.nextInt();
+                        default -> in.skipValue();
+                    }
+                } catch (IllegalStateException | NumberFormatException e) {
+                    // Wrong value type, skip the value
+                    in.skipValue();
+                    invalid = true;
+                }
+            }
+            in.endObject();
+
             try {
-                int version = obj.get("version").getAsInt();
-                
-                boolean enabled = obj.get("enabled").getAsBoolean();
-                String string = obj.get("string").getAsString();
-                int delayTicks = obj.get("delayTicks").getAsInt();
+                if (invalid) throw new JsonParseException("ResponseMessage Error: invalid value");
+                require(version, "version");
+                require(enabled, "enabled");
+                require(string, "string");
+                require(delayTicks, "delayTicks");
+                int w = version >= 2 ? require(weight, "weight") : 1;
 
                 // Validation
                 if (delayTicks < 0) throw new JsonParseException("ResponseMessage Error: delayTicks < 0");
+                if (w < 1 || w > MAX_WEIGHT) throw new JsonParseException("ResponseMessage Error: weight out of range");
 
-                return new Message(enabled, string, delayTicks);
+                return new Message(enabled, string, delayTicks, w);
             }
             catch (Exception e) {
                 CommandKeys.LOG.warn("Unable to deserialize ResponseMessage", e);
@@ -18,10 +18,18 @@ package dev.terminalmc.commandkeys.config;
 
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.gson.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -29,27 +37,48 @@ import java.util.*;
  * a list of strings identifying worlds and/or servers to which the
  * {@link Profile} is linked, collectively referred to as 'links'.
  *
- * <p>A static {@link Map} {@link Profile#LINK_PROFILE_MAP} is maintained to
- * ensure no overlap of links across different profiles, and to improve link
- * lookup time.</p>
+ * <p>Links are registered with the {@link LinkIndex} of the owning
+ * {@link Config}, which ensures no overlap of links across different profiles,
+ * so links are modified via the config.</p>
  *
  * <p>A pair of transient {@link Multimap} instances ({@link Profile#keybindMap}
  * and {@link Profile#macroMap}) are maintained to improve macro lookup time.
  * </p>
+ *
+ * <p>A transient dispatch table, compiled from the maps, allows keypresses to
+ * be resolved in-game without traversing the maps or allocating.</p>
+ *
+ * <p>Profiles are loaded with their macros undecoded, and are materialized
+ * on first use by {@link Profile#materialize()}. The macro list and maps of a
+ * profile which has not been materialized are empty. If the macros cannot be
+ * decoded, the profile is marked unreadable and they are kept undecoded, so
+ * that saving does not discard them.</p>
  */
 public class Profile {
-    public final int version = 4;
-    
-    public static final Map<String, Profile> LINK_PROFILE_MAP = new HashMap<>();
+    public final int version = 6;
     
     public transient final Multimap<InputConstants.Key, Keybind> keybindMap 
             = LinkedHashMultimap.create();
     public transient final Multimap<Keybind, Macro> macroMap 
             = LinkedHashMultimap.create();
+    private transient final Int2ObjectMap<Dispatch[]> dispatchMap 
+            = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * Precompiled activation data for a single {@link Keybind}.
+     * @param keybind the keybind.
+     * @param limited whether the keybind uses a limit key.
+     * @param macros the macros using the keybind, excluding those using 
+     *               {@link Macro.ConflictStrategy#AVOID}.
+     * @param submit whether any of the macros use 
+     *               {@link Macro.ConflictStrategy#SUBMIT}.
+     */
+    public record Dispatch(Keybind keybind, boolean limited, Macro[] macros, boolean submit) {}
 
     // Profile details
-    public String name;
-    private final List<String> links;
+    UUID id;
+    private String name;
+    final List<String> links;
 
     // Behavior controls
     public static final Control addToHistoryDefault = Control.OFF;
@@ -65,9 +94,13 @@ public class Profile {
         OFF,
         DEFER
     }
+    public static final int SEND_RATE_DEFER = -1;
+    private int sendRate;
 
     // Macro list
     private final List<Macro> macros;
+    transient @Nullable MacroBlob macroBlob = null;
+    private transient boolean unreadable = false;
 
     /**
      * Creates a default empty instance.
@@ -78,50 +111,94 @@ public class Profile {
     
     public Profile(String name) {
         this(
+                UUID.randomUUID(),
                 name,
                 new ArrayList<>(),
                 addToHistoryDefault,
                 showHudMessageDefault,
                 resumeRepeatingDefault,
                 useRatelimitDefault,
+                SEND_RATE_DEFER,
                 new ArrayList<>()
         );
     }
 
     /**
-     * Not validated, only for use by self-validating deserializer.
+     * Not validated, only for use by self-validating readers.
      */
-    private Profile(
+    Profile(
+            UUID id,
             String name,
             List<String> links,
             Control addToHistory,
             Control showHudMessage,
             Control resumeRepeating,
             Control useRatelimit,
+            int sendRate,
             List<Macro> macros
     ) {
+        this.id = id;
         this.name = name;
         this.links = links;
         this.addToHistory = addToHistory;
         this.showHudMessage = showHudMessage;
         this.resumeRepeating = resumeRepeating;
         this.useRatelimit = useRatelimit;
+        this.sendRate = sendRate;
         this.macros = macros;
-        // Add missing links to map
-        this.links.removeIf((link) -> LINK_PROFILE_MAP.putIfAbsent(link, this) != null);
     }
 
     /**
-     * Copy constructor.
+     * Copy constructor. The copy has a new ID.
      */
     Profile(Profile profile) {
+        this.id = UUID.randomUUID();
         this.name = profile.name;
         this.links = new ArrayList<>();
         this.addToHistory = profile.addToHistory;
         this.showHudMessage = profile.showHudMessage;
         this.resumeRepeating = profile.resumeRepeating;
         this.useRatelimit = profile.useRatelimit;
-        this.macros = profile.macros;
+        this.sendRate = profile.sendRate;
+        if (profile.macroBlob != null) {
+            this.macros = new ArrayList<>();
+            this.macroBlob = profile.macroBlob;
+        } else {
+            this.macros = profile.macros;
+        }
+    }
+
+    /**
+     * @return a copy of this profile with the same ID and no shared mutable
+     * state, so that it can be written on another thread. Decoded macros are
+     * copied, and undecoded macros are shared as an immutable 
+     * {@link MacroBlob}.
+     */
+    Profile snapshot() {
+        List<Macro> copies = new ArrayList<>(macros.size());
+        for (Macro macro : macros) copies.add(new Macro(macro));
+        Profile copy = new Profile(id, name, new ArrayList<>(links), addToHistory,
+                showHudMessage, resumeRepeating, useRatelimit, sendRate, copies);
+        copy.macroBlob = macroBlob;
+        return copy;
+    }
+
+    /**
+     * @return the unique ID of this profile, which does not change for the
+     * lifetime of the profile.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        if (name.equals(this.name)) return;
+        this.name = name;
+        Config.markDirty();
     }
 
     /**
@@ -144,24 +221,6 @@ public class Profile {
         return Collections.unmodifiableList(links);
     }
 
-    /**
-     * Adds the link to this profile and to {@link Profile#LINK_PROFILE_MAP},
-     * after removing it from any other profile.
-     */
-    public void forceAddLink(String link) {
-        if (LINK_PROFILE_MAP.containsKey(link)) LINK_PROFILE_MAP.get(link).removeLink(link);
-        links.add(link);
-        LINK_PROFILE_MAP.put(link, this);
-    }
-
-    /**
-     * Removes the link from this profile and from
-     * {@link Profile#LINK_PROFILE_MAP}.
-     */
-    public void removeLink(String link) {
-        links.remove(link);
-        LINK_PROFILE_MAP.remove(link);
-    }
     
     // Behavior management
 
@@ -171,7 +230,8 @@ public class Profile {
 
     public void setAddToHistory(Control addToHistory) {
         this.addToHistory = addToHistory;
-        macros.forEach((macro) -> setAddToHistory(macro, macro.addToHistory));
+        updateStatus();
+        Config.markDirty();
     }
 
     public Control getShowHudMessage() {
@@ -180,7 +240,8 @@ public class Profile {
 
     public void setShowHudMessage(Control showHudMessage) {
         this.showHudMessage = showHudMessage;
-        macros.forEach((macro) -> setShowHudMessage(macro, macro.showHudMessage));
+        updateStatus();
+        Config.markDirty();
     }
 
     public Control getResumeRepeating() {
@@ -189,7 +250,8 @@ public class Profile {
 
     public void setResumeRepeating(Control resumeRepeating) {
         this.resumeRepeating = resumeRepeating;
-        macros.forEach((macro) -> setResumeRepeating(macro, macro.resumeRepeating));
+        updateStatus();
+        Config.markDirty();
     }
 
     public Control getUseRatelimit() {
@@ -198,21 +260,92 @@ public class Profile {
 
     public void setUseRatelimit(Control useRatelimit) {
         this.useRatelimit = useRatelimit;
-        macros.forEach((macro) -> setUseRatelimit(macro, macro.useRatelimit));
+        updateStatus();
+        Config.markDirty();
+    }
+
+    /**
+     * @return the maximum number of messages sent per second while this 
+     * profile is active, 0 for no limit, or {@link Profile#SEND_RATE_DEFER} 
+     * to use {@link Config#getSendRate()}.
+     */
+    public int getSendRate() {
+        return sendRate;
+    }
+
+    public void setSendRate(int sendRate) {
+        if (sendRate < SEND_RATE_DEFER || sendRate > Config.MAX_SEND_RATE) 
+            throw new IllegalArgumentException();
+        this.sendRate = sendRate;
+        Config.markDirty();
     }
     
     // Macro management
 
     /**
+     * @return {@code true} if the macros of this profile have been decoded.
+     */
+    public boolean isMaterialized() {
+        return macroBlob == null;
+    }
+
+    /**
+     * @return {@code true} if the macros of this profile could not be
+     * decoded, in which case they are written back to the config file
+     * unchanged unless a macro is added.
+     */
+    public boolean isUnreadable() {
+        return unreadable;
+    }
+
+    /**
+     * Decodes the macros of this profile and builds the macro maps, if not
+     * already done. If decoding fails the profile is marked unreadable, and
+     * the config file is backed up.
+     */
+    public void materialize() {
+        if (macroBlob == null || unreadable) return;
+        try {
+            macros.addAll(macroBlob.decode());
+        } catch (Exception e) {
+            // Catch Exception as errors in decoding may not fall under
+            // JsonParseException, but should not crash the game.
+            markUnreadable(e);
+            return;
+        }
+        macroBlob = null;
+        updateStatus();
+        rebuildMaps();
+    }
+
+    private void markUnreadable(Exception e) {
+        CommandKeys.LOG.error("Unable to load macros of profile '{}'", getDisplayName(), e);
+        unreadable = true;
+        Config.backup(true);
+    }
+
+    /**
+     * Materializes this profile if required.
      * @return an unmodifiable view of the {@link Macro} list.
      */
     public List<Macro> getMacros() {
+        materialize();
         return Collections.unmodifiableList(macros);
     }
     
     public void addMacro(Macro macro) {
+        materialize();
+        if (unreadable) {
+            // The config file was backed up when decoding failed
+            CommandKeys.LOG.warn("Replacing unreadable macros of profile '{}'",
+                    getDisplayName());
+            macroBlob = null;
+            unreadable = false;
+        }
         macros.add(macro);
         addToMaps(macro);
+        compileDispatch();
+        Config.markDirty();
     }
 
     /**
@@ -224,12 +357,15 @@ public class Profile {
         if (sourceIndex != destIndex) {
             macros.add(destIndex, macros.remove(sourceIndex));
             rebuildMaps();
+            Config.markDirty();
         }
     }
     
     public void removeMacro(Macro macro) {
+        macro.clearScheduled();
         macros.remove(macro);
         rebuildMaps();
+        Config.markDirty();
     }
     
     // Macro map management
@@ -250,7 +386,7 @@ public class Profile {
 
     /**
      * Clears and repopulates {@link Profile#keybindMap} and 
-     * {@link Profile#macroMap}.
+     * {@link Profile#macroMap}, and recompiles the dispatch table.
      */
     public void rebuildMaps() {
         keybindMap.clear();
@@ -258,6 +394,48 @@ public class Profile {
         for (Macro macro : macros) {
             addToMaps(macro);
         }
+        compileDispatch();
+    }
+
+    /**
+     * @return the {@link Dispatch} entries for keybinds using {@code key} as
+     * their primary key, with limited keybinds ordered first, or {@code null} 
+     * if there are none.
+     */
+    public @Nullable Dispatch[] getDispatch(InputConstants.Key key) {
+        return dispatchMap.get(Keybind.code(key));
+    }
+
+    /**
+     * Compiles {@link Profile#keybindMap} and {@link Profile#macroMap} into
+     * the dispatch table. Keybinds with no in-game macros are omitted.
+     */
+    private void compileDispatch() {
+        dispatchMap.clear();
+        for (InputConstants.Key key : keybindMap.keySet()) {
+            if (key.equals(InputConstants.UNKNOWN)) continue;
+            List<Dispatch> entries = new ArrayList<>();
+            Dispatch mono = null;
+            for (Keybind kb : keybindMap.get(key)) {
+                Macro[] active = macroMap.get(kb).stream()
+                        .filter((macro) -> !macro.conflictStrategy.equals(Macro.ConflictStrategy.AVOID))
+                        .toArray(Macro[]::new);
+                if (active.length == 0) continue;
+                boolean submit = false;
+                for (Macro macro : active) {
+                    if (macro.conflictStrategy.equals(Macro.ConflictStrategy.SUBMIT)) submit = true;
+                }
+                boolean limited = !kb.getLimitKey().equals(InputConstants.UNKNOWN);
+                Dispatch dispatch = new Dispatch(kb, limited, active, submit);
+                if (limited) entries.add(dispatch);
+                else mono = dispatch;
+            }
+            // Mono keybind is only used if no limited keybind is active
+            if (mono != null) entries.add(mono);
+            if (!entries.isEmpty()) {
+                dispatchMap.put(Keybind.code(key), entries.toArray(Dispatch[]::new));
+            }
+        }
     }
     
     // Macro editing
@@ -267,12 +445,15 @@ public class Profile {
         macro.clearScheduled();
         macro.sendMode = sendMode;
         rebuildMaps();
+        Config.markDirty();
     }
     
     public void setConflictStrategy(Macro macro, Macro.ConflictStrategy conflictStrategy) {
         if (conflictStrategy.equals(macro.conflictStrategy)) return;
         macro.clearScheduled();
         macro.conflictStrategy = conflictStrategy;
+        compileDispatch();
+        Config.markDirty();
     }
     
     public void setKey(Macro macro, Keybind keybind, InputConstants.Key key) {
@@ -281,6 +462,7 @@ public class Profile {
             macro.clearScheduled();
             keybind.setKey(key);
             rebuildMaps();
+            Config.markDirty();
         }
     }
 
@@ -290,48 +472,93 @@ public class Profile {
             macro.clearScheduled();
             keybind.setLimitKey(key);
             rebuildMaps();
+            Config.markDirty();
         }
     }
     
     public void setAddToHistory(Macro macro, boolean value) {
         macro.addToHistory = value;
-        macro.addToHistoryStatus = switch(this.addToHistory) {
-            case ON -> true;
-            case OFF -> false;
-            case DEFER -> macro.addToHistory;
-        };
+        updateStatus(macro);
+        Config.markDirty();
     }
 
     public void setShowHudMessage(Macro macro, boolean value) {
         macro.showHudMessage = value;
-        macro.showHudMessageStatus = switch(this.showHudMessage) {
-            case ON -> true;
-            case OFF -> false;
-            case DEFER -> macro.showHudMessage;
-        };
+        updateStatus(macro);
+        Config.markDirty();
     }
 
     public void setResumeRepeating(Macro macro, boolean value) {
         macro.resumeRepeating = value;
-        macro.resumeRepeatingStatus = switch(this.resumeRepeating) {
-            case ON -> true;
-            case OFF -> false;
-            case DEFER -> macro.resumeRepeating;
-        };
+        updateStatus(macro);
+        Config.markDirty();
     }
 
     public void setUseRatelimit(Macro macro, boolean value) {
         macro.useRatelimit = value;
-        macro.useRatelimitStatus = switch(this.useRatelimit) {
+        updateStatus(macro);
+        Config.markDirty();
+    }
+
+    private void updateStatus() {
+        for (Macro macro : macros) updateStatus(macro);
+    }
+
+    /**
+     * Updates the effective behavior of {@code macro} from its own settings
+     * and the behavior controls of this profile.
+     */
+    private void updateStatus(Macro macro) {
+        macro.addToHistoryStatus = switch(addToHistory) {
+            case ON -> true;
+            case OFF -> false;
+            case DEFER -> macro.addToHistory;
+        };
+        macro.showHudMessageStatus = switch(showHudMessage) {
+            case ON -> true;
+            case OFF -> false;
+            case DEFER -> macro.showHudMessage;
+        };
+        macro.resumeRepeatingStatus = switch(resumeRepeating) {
+            case ON -> true;
+            case OFF -> false;
+            case DEFER -> macro.resumeRepeating;
+        };
+        macro.useRatelimitStatus = switch(useRatelimit) {
             case ON -> true;
             case OFF -> false;
             case DEFER -> macro.useRatelimit;
         };
     }
 
+    // Reloading
+
+    /**
+     * Transfers transient state from the macros of {@code old}, which is
+     * being replaced by this profile, to their equivalents in this profile,
+     * and cancels messages scheduled by the others.
+     */
+    void adoptState(Profile old) {
+        List<Macro> unmatched = new ArrayList<>(getMacros());
+        for (Macro oldMacro : old.macros) {
+            Macro match = null;
+            for (Iterator<Macro> iter = unmatched.iterator(); iter.hasNext(); ) {
+                Macro macro = iter.next();
+                if (macro.isEquivalent(oldMacro)) {
+                    match = macro;
+                    iter.remove();
+                    break;
+                }
+            }
+            if (match != null) match.adoptState(oldMacro);
+            else oldMacro.clearScheduled();
+        }
+    }
+
     // Cleanup and validation
 
     void cleanup() {
+        if (macroBlob != null) return;
         macros.removeIf((macro) -> {
             // Allow trailing whitespace only for TYPE mode
             if (!macro.sendMode.equals(Macro.SendMode.TYPE)) {
@@ -341,64 +568,134 @@ public class Profile {
             if (!macro.sendMode.equals(Macro.SendMode.CYCLE) && 
                     !macro.sendMode.equals(Macro.SendMode.TYPE)) {
                 macro.messages.removeIf((msg) -> msg.string.isBlank());
+                macro.invalidateRandom();
+            }
+            // Precompile placeholder templates, reporting invalid regexes
+            for (Message msg : macro.messages) {
+                String error = msg.getTemplate().getError();
+                if (error != null) {
+                    CommandKeys.LOG.warn("Invalid placeholder regex in message '{}': {}", 
+                            msg.string, error);
+                }
             }
             // Update transients in macros
-            setAddToHistory(addToHistory);
-            setShowHudMessage(showHudMessage);
-            setResumeRepeating(resumeRepeating);
-            setUseRatelimit(useRatelimit);
+            updateStatus(macro);
             return macro.messages.isEmpty();
         });
     }
 
     // Deserialization
 
-    public static class Deserializer implements JsonDeserializer<Profile> {
+    public static class Reader extends StreamingReader<Profile> {
+        public Reader() {
+            super(Profile.class);
+        }
+
         @Override
-        public Profile deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-                throws JsonParseException {
-            JsonObject obj = json.getAsJsonObject();
-            int version = obj.has("version") ? obj.get("version").getAsInt() : 0;
-
-            String name = obj.get("name").getAsString();
-            List<String> addresses = new ArrayList<>();
-            for (JsonElement je : obj.getAsJsonArray(version >= 3 ? "links" : "addresses")) {
-                addresses.add(je.getAsString());
+        Profile read(JsonReader in, Gson gson) throws IOException {
+            Integer version = null;
+            String idString = null;
+            String name = null;
+            List<String> links = null;
+            List<String> addresses = null;
+            String addToHistoryName = null;
+            String showHudMessageName = null;
+            String resumeRepeatingName = null;
+            String useRatelimitName = null;
+            Integer sendRate = null;
+            MacroBlob.Json macros = null;
+            MacroBlob.Json commandKeys = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch(in.nextName()) {
+                    case "version" -> version = in.nextInt();
+                    case "id" -> idString = in.nextString();
+                    case "name" -> name = in.nextString();
+                    case "links" -> links = readStrings(in);
+                    case "addresses" -> addresses = readStrings(in);
+                    case "addToHistory" -> addToHistoryName = in.nextString();
+                    case "showHudMessage" -> showHudMessageName = in.nextString();
+                    case "resumeRepeating" -> resumeRepeatingName = in.nextString();
+                    case "useRatelimit" -> useRatelimitName = in.nextString();
+                    case "sendRate" -> sendRate = in.nextInt();
+                    case "macros" -> macros = MacroBlob.Json.read(in);
+                    case "commandKeys" -> commandKeys = MacroBlob.Json.read(in);
+                    default -> in.skipValue();
+                }
             }
-            Control addToHistory = version >= 2
-                    ? Control.valueOf(obj.get("addToHistory").getAsString())
+            in.endObject();
+            int v = version != null ? version : 0;
+
+            UUID id = v >= 6 ? UUID.fromString(require(idString, "id")) : UUID.randomUUID();
+            name = require(name, "name");
+            links = v >= 3 ? require(links, "links") : require(addresses, "addresses");
+            Control addToHistory = v >= 2
+                    ? Control.valueOf(require(addToHistoryName, "addToHistory"))
                     : addToHistoryDefault;
-            Control showHudMessage = version >= 2
-                    ? Control.valueOf(obj.get("showHudMessage").getAsString())
+            Control showHudMessage = v >= 2
+                    ? Control.valueOf(require(showHudMessageName, "showHudMessage"))
                     : showHudMessageDefault;
-            Control resumeRepeating = version >= 4
-                    ? Control.valueOf(obj.get("resumeRepeating").getAsString())
+            Control resumeRepeating = v >= 4
+                    ? Control.valueOf(require(resumeRepeatingName, "resumeRepeating"))
                     : resumeRepeatingDefault;
-            Control useRatelimit = version >= 4
-                    ? Control.valueOf(obj.get("useRatelimit").getAsString())
+            Control useRatelimit = v >= 4
+                    ? Control.valueOf(require(useRatelimitName, "useRatelimit"))
                     : useRatelimitDefault;
+            int rate = v >= 5 ? require(sendRate, "sendRate") : SEND_RATE_DEFER;
+            macros = v >= 2 ? require(macros, "macros") : require(commandKeys, "commandKeys");
 
-            // Deserialize CommandKey objects with link to deserialized Profile
-            List<Macro> macros = new ArrayList<>();
+            // Validate
+            if (rate < SEND_RATE_DEFER || rate > Config.MAX_SEND_RATE) rate = SEND_RATE_DEFER;
+            if (!macros.text().startsWith("[")) throw new JsonParseException(
+                    "Profile Error: macros is not an array");
 
             Profile profile = new Profile(
+                    id,
                     name,
-                    addresses,
+                    links,
                     addToHistory,
                     showHudMessage,
                     resumeRepeating,
                     useRatelimit,
-                    macros
+                    rate,
+                    new ArrayList<>()
             );
-            for (JsonElement je : obj.getAsJsonArray(version >= 2 ? "macros" : "commandKeys")) {
-                macros.add(ctx.deserialize(je, Macro.class));
-            }
-            profile.rebuildMaps();
+            profile.macroBlob = macros;
+            return profile;
+        }
 
-            // Validate
-            if (name == null) throw new JsonParseException("Profile Error: name == null");
+        @Override
+        void write(JsonWriter out, Profile profile, TypeAdapter<Profile> delegate, Gson gson) 
+                throws IOException {
+            if (profile.macroBlob == null) {
+                delegate.write(out, profile);
+                return;
+            }
+            // Write back the undecoded macros in place of the empty list
+            out.beginObject();
+            out.name("version").value(profile.version);
+            out.name("id").value(profile.id.toString());
+            out.name("name").value(profile.name);
+            out.name("links").beginArray();
+            for (String link : profile.links) out.value(link);
+            out.endArray();
+            out.name("addToHistory").value(profile.addToHistory.name());
+            out.name("showHudMessage").value(profile.showHudMessage.name());
+            out.name("resumeRepeating").value(profile.resumeRepeating.name());
+            out.name("useRatelimit").value(profile.useRatelimit.name());
+            out.name("sendRate").value(profile.sendRate);
+            out.name("macros");
+            profile.macroBlob.write(out);
+            out.endObject();
+        }
 
-            return profile;
+        private static List<String> readStrings(JsonReader in) throws IOException {
+            List<String> list = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) list.add(in.nextString());
+            in.endArray();
+            return list;
         }
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Base for config model readers, which construct model objects directly from
+ * {@link JsonReader} tokens instead of first building a tree of the whole
+ * file. Writing is delegated to Gson's reflective adapter by default, so the
+ * file format is unchanged.
+ *
+ * <p>Since fields may appear in any order, implementations read all fields
+ * into locals before applying version migrations.</p>
+ */
+abstract class StreamingReader<T> implements TypeAdapterFactory {
+    private final Class<T> type;
+
+    StreamingReader(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Reads a single non-null object of type {@code T}.
+     * @param gson the instance to use for obtaining adapters for nested types.
+     */
+    abstract T read(JsonReader in, Gson gson) throws IOException;
+
+    /**
+     * Writes a single non-null object of type {@code T}.
+     * @param delegate Gson's reflective adapter for {@code T}.
+     */
+    void write(JsonWriter out, T value, TypeAdapter<T> delegate, Gson gson) throws IOException {
+        delegate.write(out, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> @Nullable TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+        if (typeToken.getRawType() != type) return null;
+        TypeAdapter<T> delegate = (TypeAdapter<T>)gson.getDelegateAdapter(this, typeToken);
+        return (TypeAdapter<R>)new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                StreamingReader.this.write(out, value, delegate, gson);
+            }
+
+            @Override
+            public @Nullable T read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                return StreamingReader.this.read(in, gson);
+            }
+        };
+    }
+
+    /**
+     * @return {@code value}, if not {@code null}.
+     * @throws JsonParseException if {@code value} is {@code null}.
+     */
+    <E> E require(@Nullable E value, String name) {
+        if (value == null) throw new JsonParseException(
+                type.getSimpleName() + " Error: missing " + name);
+        return value;
+    }
+
+    /**
+     * Copies the next value of {@code in} to {@code out} token by token,
+     * without building a tree.
+     */
+    static void copy(JsonReader in, JsonWriter out) throws IOException {
+        int depth = 0;
+        do {
+            switch(in.peek()) {
+                case BEGIN_ARRAY -> {
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                }
+                case END_ARRAY -> {
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                }
+                case BEGIN_OBJECT -> {
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    in.endObject();
+                    out.endObject();
+                    depth--;
+                }
+                case NAME -> out.name(in.nextName());
+                case STRING -> out.value(in.nextString());
+                case NUMBER -> out.jsonValue(in.nextString());
+                case BOOLEAN -> out.value(in.nextBoolean());
+                case NULL -> {
+                    in.nextNull();
+                    out.nullValue();
+                }
+                case END_DOCUMENT -> throw new JsonParseException("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.gui.overlay;
+
+import dev.terminalmc.commandkeys.util.Metrics;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static dev.terminalmc.commandkeys.util.Localization.localized;
+
+/**
+ * Displays a summary of {@link Metrics} in the top-right corner of the HUD,
+ * refreshed once per second.
+ */
+public class MetricsOverlay {
+    private static final int REFRESH_TICKS = 20;
+    private static final int MARGIN = 4;
+    private static final int BACKGROUND_COLOR = 0x90505050;
+    private static final int TEXT_COLOR = 0xE0E0E0;
+
+    private static boolean visible = false;
+    private static List<Component> lines = List.of();
+    private static int ticksSinceRefresh = 0;
+
+    public static boolean isVisible() {
+        return visible;
+    }
+
+    public static void setVisible(boolean visible) {
+        MetricsOverlay.visible = visible;
+        ticksSinceRefresh = REFRESH_TICKS;
+    }
+
+    public static void tick() {
+        if (!visible || !Metrics.isEnabled()) {
+            lines = List.of();
+            return;
+        }
+        if (++ticksSinceRefresh < REFRESH_TICKS) return;
+        ticksSinceRefresh = 0;
+        lines = createLines();
+    }
+
+    public static void render(GuiGraphics graphics) {
+        if (lines.isEmpty()) return;
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.options.hideGui || mc.getDebugOverlay().showDebugScreen()) return;
+        Font font = mc.font;
+        int y = MARGIN;
+        for (Component line : lines) {
+            int width = font.width(line);
+            int x = graphics.guiWidth() - width - MARGIN;
+            graphics.fill(x - 2, y - 1, x + width + 2, y + font.lineHeight, BACKGROUND_COLOR);
+            graphics.drawString(font, line, x, y, TEXT_COLOR, false);
+            y += font.lineHeight + 1;
+        }
+    }
+
+    private static List<Component> createLines() {
+        List<Component> lines = new ArrayList<>();
+        lines.add(localized("overlay", "metrics").withStyle(ChatFormatting.AQUA));
+        for (Metrics.Metric metric : Metrics.ALL) {
+            Component name = localized("overlay", "metrics." + metric.getName());
+            if (metric instanceof Metrics.Histogram histogram) {
+                Metrics.Histogram.Snapshot s = histogram.snapshot();
+                boolean nanos = histogram.isNanos();
+                lines.add(localized("overlay", "metrics.histogram", name,
+                        s.count(), format(s.p50(), nanos), format(s.p99(), nanos),
+                        format(s.max(), nanos)));
+            } else if (metric instanceof Metrics.Counter counter) {
+                lines.add(localized("overlay", "metrics.counter", name, counter.get()));
+            }
+        }
+        return lines;
+    }
+
+    private static String format(long value, boolean nanos) {
+        if (!nanos) return String.valueOf(value);
+        if (value < 1_000) return value + "ns";
+        if (value < 1_000_000) return String.format(Locale.ROOT, "%.1f\u00B5s", value / 1e3);
+        return String.format(Locale.ROOT, "%.1fms", value / 1e6);
+    }
+}
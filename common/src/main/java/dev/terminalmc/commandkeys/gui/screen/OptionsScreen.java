@@ -19,7 +19,6 @@ package dev.terminalmc.commandkeys.gui.screen;
 import com.mojang.blaze3d.platform.InputConstants;
 import com.mojang.blaze3d.platform.Window;
 import dev.terminalmc.commandkeys.CommandKeys;
-import dev.terminalmc.commandkeys.config.Config;
 import dev.terminalmc.commandkeys.gui.widget.list.OptionList;
 import dev.terminalmc.commandkeys.gui.widget.list.ProfileOptionList;
 import dev.terminalmc.commandkeys.gui.widget.list.MainOptionList;
@@ -118,10 +117,10 @@ public class OptionsScreen extends OptionsSubScreen {
 
     @Override
     public void onClose() {
+        // Edits mark the config dirty, to be saved by autosave once no
+        // options screen is open
         if (lastScreen instanceof OptionsScreen screen) {
             screen.reload(width, height);
-        } else {
-            Config.save();
         }
         super.onClose();
     }
@@ -19,6 +19,7 @@ package dev.terminalmc.commandkeys.gui.widget.list;
 import com.mojang.blaze3d.platform.InputConstants;
 import dev.terminalmc.commandkeys.config.*;
 import dev.terminalmc.commandkeys.util.KeybindUtil;
+import dev.terminalmc.commandkeys.util.PlaceholderUtil;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
@@ -60,6 +61,10 @@ public class MacroOptionList extends MacroBindList {
 
         addEntry(new Entry.StrategyAndModeEntry(entryX, entryWidth, entryHeight, this, profile, macro));
 
+        if (!macro.getMode().equals(TYPE)) {
+            addEntry(new Entry.SplitEntry(entryX, entryWidth, entryHeight, macro));
+        }
+
         addEntry(new OptionList.Entry.TextEntry(entryX, entryWidth, entryHeight,
                 localized("option", "key.messages"), null, -1));
 
@@ -243,6 +248,23 @@ public class MacroOptionList extends MacroBindList {
             }
         }
 
+        private static class SplitEntry extends Entry {
+            SplitEntry(int x, int width, int height, Macro macro) {
+                super();
+                CycleButton<Boolean> splitButton = CycleButton.booleanBuilder(
+                                CommonComponents.OPTION_ON.copy().withStyle(ChatFormatting.GREEN),
+                                CommonComponents.OPTION_OFF.copy().withStyle(ChatFormatting.RED))
+                        .withInitialValue(macro.getSplitMessages())
+                        .withTooltip((status) -> Tooltip.create(
+                                localized("option", "key.split.tooltip")))
+                        .create(x, 0, width, height,
+                                localized("option", "key.split"),
+                                (button, status) -> macro.setSplitMessages(status));
+                splitButton.setTooltipDelay(Duration.ofMillis(500));
+                elements.add(splitButton);
+            }
+        }
+
         private static class BindAndControlsEntry extends Entry {
             BindAndControlsEntry(int x, int width, int height, MacroOptionList list,
                                  Profile profile, Macro macro) {
@@ -293,8 +315,8 @@ public class MacroOptionList extends MacroBindList {
                 int minDelayFieldWidth = font.width("0_") + 8;
                 int stopButtonWidth = font.width("Stop") + 8;
                 int modeButtonWidth = switch(macro.getMode()) {
-                    case SEND -> buttonWidth - minDelayFieldWidth;
-                    case TYPE, RANDOM -> buttonWidth;
+                    case SEND, RANDOM -> buttonWidth - minDelayFieldWidth;
+                    case TYPE -> buttonWidth;
                     case CYCLE -> buttonWidth - list.smallButtonWidth;
                     case REPEAT -> buttonWidth -
                             (macro.hasRepeating() ? stopButtonWidth : minDelayFieldWidth);
@@ -348,8 +370,8 @@ public class MacroOptionList extends MacroBindList {
                         try {
                             int space = Integer.parseInt(val.strip());
                             if (space < 0) throw new NumberFormatException();
-                            int oldSpace = macro.spaceTicks;
-                            macro.spaceTicks = space;
+                            int oldSpace = macro.getSpaceTicks();
+                            macro.setSpaceTicks(space);
                             // Show/hide per-message delay fields
                             if (macro.getMode() == SEND
                                     && ((space == 0 && oldSpace != 0) || (space != 0 && oldSpace == 0))) {
@@ -361,7 +383,7 @@ public class MacroOptionList extends MacroBindList {
                             delayField.setTextColor(16711680);
                         }
                     });
-                    delayField.setValue(String.valueOf(macro.spaceTicks));
+                    delayField.setValue(String.valueOf(macro.getSpaceTicks()));
                     // Workaround to prevent the value sliding off to the left
                     delayField.setCursorPosition(0);
                     delayField.setHighlightPos(0);
@@ -383,6 +405,37 @@ public class MacroOptionList extends MacroBindList {
                             .size(stopButtonWidth, height)
                             .build());
                 }
+                else if (macro.getMode().equals(RANDOM)) {
+                    // No-repeat window field
+                    EditBox windowField = new EditBox(font, x + width - minDelayFieldWidth, 0,
+                            minDelayFieldWidth, height, Component.empty());
+                    windowField.setMaxLength(4);
+                    windowField.setResponder((val) -> {
+                        // Resize
+                        int newWidth = Math.max(minDelayFieldWidth,
+                                font.width(val) + font.width("_") + 8);
+                        int deltaWidth = windowField.getWidth() - newWidth;
+                        modeButton.setWidth(modeButton.getWidth() + deltaWidth);
+                        windowField.setX(windowField.getX() + deltaWidth);
+                        windowField.setWidth(windowField.getWidth() - deltaWidth);
+                        // Actual responder
+                        try {
+                            int window = Integer.parseInt(val.strip());
+                            if (window < 0) throw new NumberFormatException();
+                            macro.setNoRepeatWindow(window);
+                            windowField.setTextColor(16777215);
+                        } catch (NumberFormatException ignored) {
+                            windowField.setTextColor(16711680);
+                        }
+                    });
+                    windowField.setValue(String.valueOf(macro.getNoRepeatWindow()));
+                    // Workaround to prevent the value sliding off to the left
+                    windowField.setCursorPosition(0);
+                    windowField.setHighlightPos(0);
+                    windowField.setTooltip(Tooltip.create(localized("option",
+                            "key.random.noRepeat.tooltip")));
+                    elements.add(windowField);
+                }
                 else if (macro.getMode().equals(CYCLE)) {
                     // Cycle index button
                     List<Integer> values = new ArrayList<>();
@@ -417,11 +470,14 @@ public class MacroOptionList extends MacroBindList {
                 super();
                 Font font = Minecraft.getInstance().font;
                 boolean showDelayField = (macro.getStrategy() == AVOID
-                        || (macro.getMode() == SEND && macro.spaceTicks == 0)
+                        || (macro.getMode() == SEND && macro.getSpaceTicks() == 0)
                         || macro.getMode() == REPEAT);
+                boolean showWeightField = macro.getMode() == RANDOM;
                 int minDelayFieldWidth = font.width("0__") + 8;
+                int weightFieldWidth = font.width("0000") + 8;
                 int msgFieldWidth = width - list.smallButtonWidth * 2 - SPACING * 2
-                        - (showDelayField ? minDelayFieldWidth + SPACING : 0);
+                        - (showDelayField ? minDelayFieldWidth + SPACING : 0)
+                        - (showWeightField ? weightFieldWidth + SPACING : 0);
 
                 // Drag reorder button
                 elements.add(Button.builder(Component.literal("\u2191\u2193"),
@@ -439,7 +495,11 @@ public class MacroOptionList extends MacroBindList {
                         Component.empty(), Component.empty());
                 messageField.setCharacterLimit(256);
                 messageField.setValue(msg.string);
-                messageField.setValueListener((val) -> msg.string = val.stripLeading());
+                updateMessageTooltip(messageField, msg);
+                messageField.setValueListener((val) -> {
+                    macro.setMessage(index, val.stripLeading());
+                    updateMessageTooltip(messageField, msg);
+                });
                 elements.add(messageField);
 
                 // Delay field
@@ -464,7 +524,7 @@ public class MacroOptionList extends MacroBindList {
                         try {
                             int delay = Integer.parseInt(val.strip());
                             if (delay < 0) throw new NumberFormatException();
-                            msg.delayTicks = delay;
+                            macro.setDelay(index, delay);
                             delayField.setTextColor(16777215);
                         } catch (NumberFormatException ignored) {
                             delayField.setTextColor(16711680);
@@ -477,6 +537,31 @@ public class MacroOptionList extends MacroBindList {
                     elements.add(delayField);
                 }
 
+                // Weight field
+                if (showWeightField) {
+                    EditBox weightField = new EditBox(font,
+                            x + width - list.smallButtonWidth - SPACING - weightFieldWidth, 0,
+                            weightFieldWidth, height, Component.empty());
+                    weightField.setTooltip(Tooltip.create(
+                            localized("option", "key.random.weight.tooltip")));
+                    weightField.setTooltipDelay(Duration.ofMillis(500));
+                    weightField.setMaxLength(String.valueOf(Message.MAX_WEIGHT).length());
+                    weightField.setResponder((val) -> {
+                        try {
+                            int weight = Integer.parseInt(val.strip());
+                            if (weight < 1 || weight > Message.MAX_WEIGHT) {
+                                throw new NumberFormatException();
+                            }
+                            macro.setWeight(index, weight);
+                            weightField.setTextColor(16777215);
+                        } catch (NumberFormatException ignored) {
+                            weightField.setTextColor(16711680);
+                        }
+                    });
+                    weightField.setValue(String.valueOf(msg.getWeight()));
+                    elements.add(weightField);
+                }
+
                 // Delete button
                 elements.add(Button.builder(Component.literal("\u274C")
                                         .withStyle(ChatFormatting.RED),
@@ -488,6 +573,14 @@ public class MacroOptionList extends MacroBindList {
                         .size(list.smallButtonWidth, height)
                         .build());
             }
+
+            private static void updateMessageTooltip(MultiLineEditBox messageField, Message msg) {
+                String error = PlaceholderUtil.validate(msg.string);
+                messageField.setTooltip(error == null ? null : Tooltip.create(
+                        localized("option", "key.message.regexError",
+                                Component.literal(error).withStyle(ChatFormatting.GRAY))
+                                .withStyle(ChatFormatting.RED)));
+            }
         }
     }
 }
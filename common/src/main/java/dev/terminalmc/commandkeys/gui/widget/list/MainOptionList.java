@@ -21,17 +21,27 @@ import dev.terminalmc.commandkeys.CommandKeys;
 import dev.terminalmc.commandkeys.config.Config;
 import dev.terminalmc.commandkeys.config.Macro;
 import dev.terminalmc.commandkeys.config.Profile;
+import dev.terminalmc.commandkeys.gui.overlay.MetricsOverlay;
 import dev.terminalmc.commandkeys.gui.screen.OptionsScreen;
 import dev.terminalmc.commandkeys.util.KeybindUtil;
+import dev.terminalmc.commandkeys.util.Metrics;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.components.*;
 import net.minecraft.network.chat.CommonComponents;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import static dev.terminalmc.commandkeys.util.Localization.localized;
 
@@ -56,16 +66,24 @@ public class MainOptionList extends OptionList {
                 inGame ? null : Tooltip.create(localized("option", "main.profiles.tooltip")), 500));
 
         Config config = Config.get();
+        List<Profile> profiles = new ArrayList<>(config.getProfiles());
+        if (inGame) {
+            // Show the active profile first
+            profiles.remove(config.activeProfile());
+            profiles.addFirst(config.activeProfile());
+        }
         int i = 0;
-        for (Profile profile : config.getProfiles()) {
+        for (Profile profile : profiles) {
             addEntry(new Entry.ProfileEntry(entryX, entryWidth, entryHeight, this,
-                    profile, i, i == config.getSpDefault(), i == config.getMpDefault(), inGame));
+                    profile, profile == config.activeProfile(),
+                    profile == config.getSpDefault(), profile == config.getMpDefault(), inGame));
             if (profile.equals(editingProfile)) {
                 addEntry(new Entry.ProfileNameEntry(entryX, entryWidth, entryHeight, profile));
                 for (String address : profile.getLinks()) {
                     addEntry(new Entry.ServerAddressEntry(entryX, entryWidth, entryHeight, this,
                             profile, address));
                 }
+                addEntry(new Entry.AddLinkEntry(entryX, entryWidth, entryHeight, this, profile));
             }
             if (i == 0 && inGame) {
                 addEntry(new OptionList.Entry.TextEntry(entryX, entryWidth, entryHeight,
@@ -93,6 +111,49 @@ public class MainOptionList extends OptionList {
                 localized("option", "main.ratelimit", "\u2139"),
                 Tooltip.create(localized("option", "main.ratelimit.tooltip")), 500));
         addEntry(new Entry.RatelimitEntry(entryX, entryWidth, entryHeight));
+        addEntry(new Entry.RatelimitModeEntry(entryX, entryWidth, entryHeight));
+        addEntry(new Entry.IntFieldEntry(entryX, entryWidth, entryHeight,
+                "main.ratelimit.sendRate", Config.get().getSendRate(),
+                0, Config.MAX_SEND_RATE, Config.get()::setSendRate));
+
+        addEntry(new OptionList.Entry.TextEntry(entryX, entryWidth, entryHeight,
+                localized("option", "main.placeholders", "\u2139"),
+                Tooltip.create(localized("option", "main.placeholders.tooltip")), 500));
+        addEntry(new Entry.IntFieldEntry(entryX, entryWidth, entryHeight,
+                "main.placeholders.chatSearchDepth", Config.get().getChatSearchDepth(),
+                1, Config.MAX_CHAT_SEARCH_DEPTH, Config.get()::setChatSearchDepth));
+        addEntry(new Entry.IntFieldEntry(entryX, entryWidth, entryHeight,
+                "main.placeholders.lookDistance", Config.get().getLookDistance(),
+                Config.LOOK_DISTANCE_AUTO, Config.MAX_LOOK_DISTANCE, 
+                Config.get()::setLookDistance));
+
+        addEntry(new OptionList.Entry.TextEntry(entryX, entryWidth, entryHeight,
+                localized("option", "main.advanced", "\u2139"),
+                Tooltip.create(localized("option", "main.advanced.tooltip")), 500));
+        addEntry(new Entry.ToggleEntry(entryX, entryWidth, entryHeight,
+                "main.advanced.binaryCache", Config.get().getBinaryCache(),
+                Config.get()::setBinaryCache));
+        addEntry(new Entry.ToggleEntry(entryX, entryWidth, entryHeight,
+                "main.advanced.metrics", Metrics.isEnabled(), Metrics::setEnabled));
+        addEntry(new Entry.ToggleEntry(entryX, entryWidth, entryHeight,
+                "main.advanced.metricsOverlay", MetricsOverlay.isVisible(),
+                MetricsOverlay::setVisible));
+        addEntry(new OptionList.Entry.ActionButtonEntry(entryX, entryWidth, entryHeight,
+                localized("option", "main.advanced.exportMetrics"),
+                Tooltip.create(localized("option", "main.advanced.exportMetrics.tooltip")), 500,
+                this::exportMetrics));
+    }
+
+    private void exportMetrics(Button button) {
+        try {
+            Path file = Metrics.export(Config.getDirPath());
+            button.setMessage(localized("option", "main.advanced.exportMetrics.done",
+                    file.getFileName().toString()).withStyle(ChatFormatting.GREEN));
+        } catch (IOException e) {
+            CommandKeys.LOG.error("Unable to export metrics", e);
+            button.setMessage(localized("option", "main.advanced.exportMetrics.failed")
+                    .withStyle(ChatFormatting.RED));
+        }
     }
 
     private void setEditingProfile(@Nullable Profile profile) {
@@ -128,6 +189,7 @@ public class MainOptionList extends OptionList {
     }
 
     public void openProfileOptionsScreen(Profile profile) {
+        profile.materialize();
         minecraft.setScreen(new OptionsScreen(screen, localized("option", "profile", profile.getDisplayName()),
                 new ProfileOptionList(minecraft, screen.width, screen.height, getY(),
                         itemHeight, entryWidth, entryHeight, profile)));
@@ -140,7 +202,7 @@ public class MainOptionList extends OptionList {
             Profile profile;
 
             ProfileEntry(int x, int width, int height, MainOptionList list, Profile profile,
-                         int index, boolean spDefault, boolean mpDefault, boolean inGame) {
+                         boolean active, boolean spDefault, boolean mpDefault, boolean inGame) {
                 super();
                 this.list = list;
                 this.profile = profile;
@@ -150,12 +212,12 @@ public class MainOptionList extends OptionList {
                 int mainButtonX = x;
 
                 if (inGame) {
-                    if (index == 0) {
+                    if (active) {
                         // Link button
                         ImageButton linkButton = new ImageButton(
                                 x, 0, smallButtonWidth, height, LINK_SPRITES,
                                 (button) -> {
-                                    profile.forceAddLink(CommandKeys.lastConnection);
+                                    Config.get().forceAddLink(profile, CommandKeys.lastConnection);
                                     list.reload();
                                 });
                         if (profile.getLinks().contains(CommandKeys.lastConnection)) {
@@ -173,7 +235,7 @@ public class MainOptionList extends OptionList {
                         // Activate button
                         Button activateButton = Button.builder(Component.literal("\u2191"),
                                         (button) -> {
-                                            Config.get().activateProfile(index);
+                                            Config.get().activateProfile(profile);
                                             list.reload();
                                         })
                                 .pos(x, 0)
@@ -239,7 +301,7 @@ public class MainOptionList extends OptionList {
                 Button setAsSpDefaultButton = Button.builder(
                         localized("option", "main.defaultSingleplayer.set"),
                         (button) -> {
-                            Config.get().setSpDefault(index);
+                            Config.get().setSpDefault(profile);
                             list.reload();
                         })
                         .pos(movingX, 0)
@@ -263,7 +325,7 @@ public class MainOptionList extends OptionList {
                 Button setAsMpDefaultButton = Button.builder(
                         localized("option", "main.defaultMultiplayer.set"),
                                 (button) -> {
-                                    Config.get().setMpDefault(index);
+                                    Config.get().setMpDefault(profile);
                                     list.reload();
                                 })
                         .pos(movingX, 0)
@@ -301,7 +363,7 @@ public class MainOptionList extends OptionList {
                 // Delete button
                 Button deleteButton = Button.builder(Component.literal("\u274C"),
                                 (button) -> {
-                                    Config.get().removeProfile(index);
+                                    Config.get().removeProfile(profile);
                                     list.reload();
                                 })
                         .pos(movingX, 0)
@@ -341,8 +403,8 @@ public class MainOptionList extends OptionList {
                 EditBox nameBox = new EditBox(Minecraft.getInstance().font, x + labelWidth, 0,
                         nameBoxWidth, height, Component.empty());
                 nameBox.setMaxLength(64);
-                nameBox.setValue(profile.name);
-                nameBox.setResponder((value) -> profile.name = value.strip());
+                nameBox.setValue(profile.getName());
+                nameBox.setResponder((value) -> profile.setName(value.strip()));
                 elements.add(nameBox);
             }
         }
@@ -370,7 +432,7 @@ public class MainOptionList extends OptionList {
 
                 Button removeButton = Button.builder(Component.literal("\u274C"),
                         (button) -> {
-                            profile.removeLink(address);
+                            Config.get().removeLink(profile, address);
                             list.reload();
                         })
                         .pos(x + width - list.smallButtonWidth, 0)
@@ -383,6 +445,43 @@ public class MainOptionList extends OptionList {
             }
         }
 
+        private static class AddLinkEntry extends Entry {
+            AddLinkEntry(int x, int width, int height, MainOptionList list, Profile profile) {
+                super();
+                int labelWidth = 50;
+                int linkBoxWidth = width - labelWidth - list.smallButtonWidth - SPACING;
+
+                Button label = Button.builder(localized("option", "main.link"), (button -> {}))
+                        .pos(x, 0)
+                        .size(labelWidth, height)
+                        .build();
+                label.active = false;
+                elements.add(label);
+
+                EditBox linkBox = new EditBox(Minecraft.getInstance().font, x + labelWidth, 0,
+                        linkBoxWidth, height, Component.empty());
+                linkBox.setMaxLength(64);
+                linkBox.setTooltip(Tooltip.create(localized("option", "main.addLink.tooltip")));
+                linkBox.setTooltipDelay(Duration.ofMillis(500));
+                elements.add(linkBox);
+
+                Button addButton = Button.builder(Component.literal("+"),
+                        (button) -> {
+                            String link = linkBox.getValue().strip();
+                            if (link.isEmpty() || profile.getLinks().contains(link)) return;
+                            Config.get().forceAddLink(profile, link);
+                            list.reload();
+                        })
+                        .pos(x + width - list.smallButtonWidth, 0)
+                        .size(list.smallButtonWidth, height)
+                        .build();
+                addButton.setTooltip(Tooltip.create(
+                        localized("option", "main.addLink.add.tooltip")));
+                addButton.setTooltipDelay(Duration.ofMillis(500));
+                elements.add(addButton);
+            }
+        }
+
         private static class DefaultOptionsEntry extends Entry {
             DefaultOptionsEntry(int x, int width, int height) {
                 super();
@@ -391,24 +490,24 @@ public class MainOptionList extends OptionList {
                 // Conflict strategy button
                 elements.add(CycleButton.builder(KeybindUtil::localizeStrategy)
                         .withValues(Macro.ConflictStrategy.values())
-                        .withInitialValue(Config.get().defaultConflictStrategy)
+                        .withInitialValue(Config.get().getDefaultConflictStrategy())
                         .withTooltip((status) -> Tooltip.create(
                                 KeybindUtil.localizeStrategyTooltip(status)))
                         .create(x, 0, buttonWidth, height,
                                 localized("option", "main.default.conflictStrategy"),
                                 (button, status) ->
-                                        Config.get().defaultConflictStrategy = status));
+                                        Config.get().setDefaultConflictStrategy(status)));
 
                 // Send mode button
                 elements.add(CycleButton.builder(KeybindUtil::localizeMode)
                         .withValues(Macro.SendMode.values())
-                        .withInitialValue(Config.get().defaultSendMode)
+                        .withInitialValue(Config.get().getDefaultSendMode())
                         .withTooltip((status) -> Tooltip.create(
                                 KeybindUtil.localizeModeTooltip(status)))
                         .create(x + width - buttonWidth, 0, buttonWidth, height,
                                 localized("option", "main.default.sendMode"),
                                 (button, status) ->
-                                        Config.get().defaultSendMode = status));
+                                        Config.get().setDefaultSendMode(status)));
             }
         }
 
@@ -462,12 +561,12 @@ public class MainOptionList extends OptionList {
                 CycleButton<Boolean> strictButton = CycleButton.booleanBuilder(
                                 CommonComponents.OPTION_ON.copy().withStyle(ChatFormatting.GREEN),
                                 CommonComponents.OPTION_OFF.copy().withStyle(ChatFormatting.RED))
-                        .withInitialValue(Config.get().ratelimitStrict)
+                        .withInitialValue(Config.get().getRatelimitStrict())
                         .withTooltip((status) -> Tooltip.create(
                                 localized("option", "main.ratelimit.strict.tooltip")))
                         .create(movingX, 0, buttonWidth, height,
                                 localized("option", "main.ratelimit.strict"),
-                                (button, status) -> Config.get().ratelimitStrict = status);
+                                (button, status) -> Config.get().setRatelimitStrict(status));
                 strictButton.setTooltipDelay(Duration.ofMillis(500));
                 elements.add(strictButton);
                 movingX = x + width - buttonWidth;
@@ -475,15 +574,84 @@ public class MainOptionList extends OptionList {
                 CycleButton<Boolean> spButton = CycleButton.booleanBuilder(
                                 CommonComponents.OPTION_ON.copy().withStyle(ChatFormatting.GREEN),
                                 CommonComponents.OPTION_OFF.copy().withStyle(ChatFormatting.RED))
-                        .withInitialValue(Config.get().ratelimitSp)
+                        .withInitialValue(Config.get().getRatelimitSp())
                         .withTooltip((status) -> Tooltip.create(
                                 localized("option", "main.ratelimit.sp.tooltip")))
                         .create(movingX, 0, buttonWidth, height,
                                 localized("option", "main.ratelimit.sp"),
-                                (button, status) -> Config.get().ratelimitSp = status);
+                                (button, status) -> Config.get().setRatelimitSp(status));
                 spButton.setTooltipDelay(Duration.ofMillis(500));
                 elements.add(spButton);
             }
         }
+
+        private static class RatelimitModeEntry extends Entry {
+            RatelimitModeEntry(int x, int width, int height) {
+                super();
+
+                CycleButton<Config.RatelimitMode> modeButton = CycleButton.<Config.RatelimitMode>builder(
+                                (mode) -> localized("option", "main.ratelimit.mode."
+                                        + mode.toString().toLowerCase(Locale.ROOT)))
+                        .withValues(Config.RatelimitMode.values())
+                        .withInitialValue(Config.get().getRatelimitMode())
+                        .withTooltip((mode) -> Tooltip.create(localized("option", 
+                                "main.ratelimit.mode." + mode.toString().toLowerCase(Locale.ROOT) 
+                                        + ".tooltip")))
+                        .create(x, 0, width, height,
+                                localized("option", "main.ratelimit.mode"),
+                                (button, mode) -> Config.get().setRatelimitMode(mode));
+                modeButton.setTooltipDelay(Duration.ofMillis(500));
+                elements.add(modeButton);
+            }
+        }
+
+        private static class IntFieldEntry extends Entry {
+            IntFieldEntry(int x, int width, int height, String key, int value,
+                          int min, int max, IntConsumer setter) {
+                super();
+                Font font = Minecraft.getInstance().font;
+                int fieldWidth = (width - SPACING * 2) / 3;
+
+                elements.add(new StringWidget(x, 0, width - fieldWidth - SPACING, height,
+                        localized("option", key), font)
+                        .alignLeft());
+
+                // Value field
+                EditBox field = new EditBox(font,
+                        x + width - fieldWidth, 0, fieldWidth, height, Component.empty());
+                field.setMaxLength(String.valueOf(max).length());
+                field.setResponder((val) -> {
+                    try {
+                        int i = Integer.parseInt(val.strip());
+                        if (i < min || i > max) throw new NumberFormatException();
+                        setter.accept(i);
+                        field.setTextColor(16777215);
+                    } catch (NumberFormatException ignored) {
+                        field.setTextColor(16711680);
+                    }
+                });
+                field.setValue(String.valueOf(value));
+                field.setTooltip(Tooltip.create(localized("option", key + ".tooltip")));
+                elements.add(field);
+            }
+        }
+
+        private static class ToggleEntry extends Entry {
+            ToggleEntry(int x, int width, int height, String key, boolean value,
+                        Consumer<Boolean> setter) {
+                super();
+
+                CycleButton<Boolean> button = CycleButton.booleanBuilder(
+                                CommonComponents.OPTION_ON.copy().withStyle(ChatFormatting.GREEN),
+                                CommonComponents.OPTION_OFF.copy().withStyle(ChatFormatting.RED))
+                        .withInitialValue(value)
+                        .withTooltip((status) -> Tooltip.create(
+                                localized("option", key + ".tooltip")))
+                        .create(x, 0, width, height, localized("option", key),
+                                (b, status) -> setter.accept(status));
+                button.setTooltipDelay(Duration.ofMillis(500));
+                elements.add(button);
+            }
+        }
     }
 }
@@ -53,6 +53,7 @@ public class ProfileOptionList extends MacroBindList {
         addEntry(new Entry.ScreenSwitchEntry(entryX, entryWidth, entryHeight, this));
 
         addEntry(new Entry.ControlsEntry(entryX, entryWidth, entryHeight, this));
+        addEntry(new Entry.SendRateEntry(entryX, entryWidth, entryHeight, this));
 
         addEntry(new OptionList.Entry.TextEntry(entryX, entryWidth, entryHeight,
                 localized("option", "profile.keys", "\u2139"),
@@ -246,6 +247,44 @@ public class ProfileOptionList extends MacroBindList {
             }
         }
 
+        private static class SendRateEntry extends Entry {
+            SendRateEntry(int x, int width, int height, ProfileOptionList list) {
+                super();
+                Font font = Minecraft.getInstance().font;
+                int fieldWidth = (width - SMALL_SPACING * 3) / 4;
+
+                elements.add(new StringWidget(x, 0, width - fieldWidth - SMALL_SPACING, height,
+                        localized("option", "profile.sendRate"), font)
+                        .alignLeft());
+
+                // Send rate field, blank to defer
+                EditBox rateField = new EditBox(font,
+                        x + width - fieldWidth, 0, fieldWidth, height, Component.empty());
+                rateField.setMaxLength(3);
+                rateField.setHint(localized("option", "profile.control.defer")
+                        .withStyle(ChatFormatting.GOLD));
+                rateField.setResponder((val) -> {
+                    try {
+                        int rate = val.isBlank() 
+                                ? Profile.SEND_RATE_DEFER 
+                                : Integer.parseInt(val.strip());
+                        if (rate != Profile.SEND_RATE_DEFER 
+                                && (rate < 0 || rate > Config.MAX_SEND_RATE)) 
+                            throw new NumberFormatException();
+                        list.profile.setSendRate(rate);
+                        rateField.setTextColor(16777215);
+                    } catch (NumberFormatException ignored) {
+                        rateField.setTextColor(16711680);
+                    }
+                });
+                int rate = list.profile.getSendRate();
+                rateField.setValue(rate == Profile.SEND_RATE_DEFER ? "" : String.valueOf(rate));
+                rateField.setTooltip(Tooltip.create(
+                        localized("option", "profile.sendRate.tooltip")));
+                elements.add(rateField);
+            }
+        }
+
         private static class MacroEntry extends Entry {
             MacroEntry(int x, int width, int height, ProfileOptionList list, 
                        Profile profile, Macro macro) {
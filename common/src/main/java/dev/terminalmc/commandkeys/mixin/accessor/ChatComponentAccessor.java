@@ -1,30 +0,0 @@
-/*
- * Copyright 2025 TerminalMC
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package dev.terminalmc.commandkeys.mixin.accessor;
-
-import net.minecraft.client.GuiMessage;
-import net.minecraft.client.gui.components.ChatComponent;
-import org.spongepowered.asm.mixin.Mixin;
-import org.spongepowered.asm.mixin.gen.Accessor;
-
-import java.util.List;
-
-@Mixin(ChatComponent.class)
-public interface ChatComponentAccessor {
-    @Accessor
-    List<GuiMessage> getAllMessages();
-}
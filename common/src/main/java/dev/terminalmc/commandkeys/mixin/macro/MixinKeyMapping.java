@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.mixin.macro;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.util.KeybindUtil;
+import net.minecraft.client.KeyMapping;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(KeyMapping.class)
+public class MixinKeyMapping {
+    /**
+     * Invalidates the keybind conflict index when a key is changed.
+     */
+    @Inject(
+            method = "setKey",
+            at = @At("TAIL")
+    )
+    private void afterSetKey(InputConstants.Key key, CallbackInfo ci) {
+        KeybindUtil.invalidateConflicts();
+    }
+
+    /**
+     * Invalidates the keybind conflict index when Minecraft rebuilds its own
+     * keybind map, e.g. after options are loaded.
+     */
+    @Inject(
+            method = "resetMapping",
+            at = @At("TAIL")
+    )
+    private static void afterResetMapping(CallbackInfo ci) {
+        KeybindUtil.invalidateConflicts();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.mixin.placeholder;
+
+import dev.terminalmc.commandkeys.util.ChatIndex;
+import net.minecraft.client.GuiMessageTag;
+import net.minecraft.client.gui.components.ChatComponent;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MessageSignature;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ChatComponent.class)
+public class MixinChatComponent {
+    /**
+     * Adds each received message to the chat index.
+     */
+    @Inject(
+            method = "addMessage(Lnet/minecraft/network/chat/Component;Lnet/minecraft/network/chat/MessageSignature;Lnet/minecraft/client/GuiMessageTag;)V",
+            at = @At("HEAD")
+    )
+    private void onAddMessage(Component message, @Nullable MessageSignature signature,
+                              @Nullable GuiMessageTag tag, CallbackInfo ci) {
+        ChatIndex.add(message);
+    }
+
+    /**
+     * Clears the chat index when the chat is cleared.
+     */
+    @Inject(
+            method = "clearMessages",
+            at = @At("TAIL")
+    )
+    private void afterClearMessages(boolean clearSentMsgHistory, CallbackInfo ci) {
+        ChatIndex.clear();
+    }
+}
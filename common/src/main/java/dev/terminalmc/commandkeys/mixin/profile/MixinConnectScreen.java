@@ -40,7 +40,7 @@ public class MixinConnectScreen {
     private void selectMultiplayerProfile(Minecraft mc, ServerAddress address, ServerData data,
                                           TransferState state, CallbackInfo ci) {
         String server = address.getHost();
-        Config.get().activateMpProfile(server);
+        Config.get().activateMpProfile(server, address.getPort());
         CommandKeys.lastConnection = server;
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.config.Config;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.contents.TranslatableContents;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the most recent chat messages, and the sender of the most recent
+ * incoming private message.
+ *
+ * <p>Messages are flattened to plain text the first time they are searched,
+ * so messages never searched are never flattened. The number of messages
+ * retained is {@link Config#getChatSearchDepth()}, applied by
+ * {@link ChatIndex#setCapacity} when the config changes.</p>
+ */
+public class ChatIndex {
+    private static final String PM_KEY = "commands.message.display.incoming";
+
+    private static Component[] messages = new Component[0];
+    /**
+     * Flattened messages, {@code null} until first searched.
+     */
+    private static String[] strings = new String[0];
+    private static int newest = -1;
+    private static int size = 0;
+    private static @Nullable String pmSender = null;
+
+    /**
+     * Adds a received chat message to the index.
+     */
+    public static void add(Component message) {
+        if (message.getContents() instanceof TranslatableContents tc
+                && tc.getKey().contains(PM_KEY) && tc.getArgs().length > 0) {
+            Object sender = tc.getArgs()[0];
+            pmSender = sender instanceof Component c ? c.getString() : String.valueOf(sender);
+        }
+        if (messages.length == 0) return;
+        newest = (newest + 1) % messages.length;
+        messages[newest] = message;
+        strings[newest] = null;
+        if (size < messages.length) size++;
+    }
+
+    /**
+     * Removes all messages from the index.
+     */
+    public static void clear() {
+        Arrays.fill(messages, null);
+        Arrays.fill(strings, null);
+        newest = -1;
+        size = 0;
+        pmSender = null;
+    }
+
+    /**
+     * @return the number of messages in the index.
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * @return the sender of the most recent incoming private message, or
+     * {@code null} if none has been received.
+     */
+    public static @Nullable String getPmSender() {
+        return pmSender;
+    }
+
+    /**
+     * Searches the index from newest to oldest.
+     * @return a matcher which has found a match in the most recent matching
+     * message, or {@code null} if no message matches.
+     */
+    public static @Nullable Matcher findRecent(Pattern regex) {
+        for (int i = 0; i < size; i++) {
+            int index = Math.floorMod(newest - i, messages.length);
+            String string = strings[index];
+            if (string == null) string = strings[index] = messages[index].getString();
+            Matcher matcher = regex.matcher(string);
+            if (matcher.find()) return matcher;
+        }
+        return null;
+    }
+
+    /**
+     * Changes the capacity of the index, retaining as many of the most recent
+     * messages as possible.
+     */
+    public static void setCapacity(int capacity) {
+        if (capacity == messages.length) return;
+        Component[] resized = new Component[capacity];
+        String[] resizedStrings = new String[capacity];
+        int count = Math.min(size, capacity);
+        for (int i = 0; i < count; i++) {
+            int index = Math.floorMod(newest - i, messages.length);
+            resized[count - 1 - i] = messages[index];
+            resizedStrings[count - 1 - i] = strings[index];
+        }
+        messages = resized;
+        strings = resizedStrings;
+        newest = count - 1;
+        size = count;
+    }
+}
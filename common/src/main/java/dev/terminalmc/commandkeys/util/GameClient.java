@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import net.minecraft.client.KeyMapping;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The parts of the game client used by macros, placeholders and the send
+ * queue.
+ *
+ * <p>In game this is always {@link MinecraftGameClient}, but it can be
+ * replaced via {@link dev.terminalmc.commandkeys.CommandKeys#client} so that
+ * those paths can run without the game, e.g. in tests and benchmarks.</p>
+ */
+public interface GameClient {
+
+    // State
+
+    /**
+     * @return {@code true} if any screen is open, {@code false} otherwise.
+     */
+    boolean isScreenOpen();
+
+    boolean isInSingleplayer();
+
+    boolean hasPlayer();
+
+    /**
+     * @return {@code true} if the player is in a world and the game is not
+     * paused, {@code false} otherwise.
+     */
+    boolean isPlaying();
+
+    /**
+     * @return {@code true} if the player is in-game and chat messages can be
+     * sent, {@code false} otherwise.
+     */
+    boolean canSendMessages();
+
+    boolean isKeyDown(InputConstants.Key key);
+
+    /**
+     * @return all Minecraft keybinds.
+     */
+    KeyMapping[] getKeyMappings();
+
+    // Player, breaks if player is not in-game
+
+    String getPlayerName();
+
+    BlockPos getPlayerBlockPos();
+
+    HitResult pick(double distance);
+
+    /**
+     * @return the current render distance, in chunks.
+     */
+    double getViewDistance();
+
+    Vec3 getLookAngle();
+
+    // Text sources
+
+    String getClipboard();
+
+    /**
+     * @return the most recent message in the sent message history, or
+     * {@code null} if there is none.
+     */
+    @Nullable String getLastSentMessage();
+
+    /**
+     * @return the most recent command in the command history, or
+     * {@code null} if there is none.
+     */
+    @Nullable String getLastCommand();
+
+    // Output
+
+    void sendChat(String message);
+
+    /**
+     * @param command the command, without the leading {@code /}.
+     */
+    void sendCommand(String command);
+
+    void addRecentChat(String message);
+
+    void setOverlayMessage(Component message);
+
+    void addChatMessage(Component message);
+
+    /**
+     * Opens the chat screen with {@code message} typed into it.
+     */
+    void openChat(String message);
+}
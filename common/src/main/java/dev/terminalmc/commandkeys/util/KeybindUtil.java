@@ -17,19 +17,21 @@
 package dev.terminalmc.commandkeys.util;
 
 import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
 import dev.terminalmc.commandkeys.config.Keybind;
 import dev.terminalmc.commandkeys.config.Macro;
 import dev.terminalmc.commandkeys.config.Profile;
 import dev.terminalmc.commandkeys.mixin.accessor.KeyMappingAccessor;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.KeyMapping;
-import net.minecraft.client.Minecraft;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import static dev.terminalmc.commandkeys.CommandKeys.canTrigger;
 import static dev.terminalmc.commandkeys.CommandKeys.profile;
@@ -38,6 +40,7 @@ import static dev.terminalmc.commandkeys.config.Macro.SendMode.*;
 import static dev.terminalmc.commandkeys.util.Localization.localized;
 
 public class KeybindUtil {
+    private static @Nullable Map<InputConstants.Key, KeyMapping> conflictIndex = null;
 
     /**
      * Allows other mods to activate macros.
@@ -72,72 +75,74 @@ public class KeybindUtil {
      * 2 -> KeyboardHandler#charTyped and KeyMapping#click.
      */
     public static int handleKey(InputConstants.Key key) {
-        int cancel = 0;
+        if (CommandKeys.client.isScreenOpen()) return 0;
+        Profile.Dispatch[] entries = profile().getDispatch(key);
+        if (entries == null) return 0;
 
-        if (Minecraft.getInstance().screen == null && profile().keybindMap.containsKey(key)) {
-            // Get all keybinds matching the pressed key
-            Collection<Keybind> keybinds = profile().keybindMap.get(key);
-            Keybind triggerKb = null;
-            Keybind monoKb = null;
-            
-            Collection<Macro> activeMacros = null;
-            for (Keybind kb : keybinds) {
-                if (kb.isLimitKeyDown()) {
-                    // Preference limited keybinds
-                    triggerKb = kb;
-                    activeMacros = profile().macroMap.get(triggerKb).stream()
-                            .filter((macro) -> !macro.getStrategy().equals(AVOID))
-                            .toList();
-                    if (!activeMacros.isEmpty()) break;
-                } else if (kb.getLimitKey().equals(InputConstants.UNKNOWN)) {
-                    // Save for use if no limited keybinds found
-                    monoKb = kb;
-                }
+        // Limited keybinds are ordered first, so are preferred
+        Profile.Dispatch trigger = null;
+        for (Profile.Dispatch entry : entries) {
+            if (!entry.limited() || entry.keybind().isLimitKeyDown()) {
+                trigger = entry;
+                break;
             }
-            if (activeMacros == null || activeMacros.isEmpty()) {
-                triggerKb = monoKb;
-                if (triggerKb == null) return cancel;
-                activeMacros = profile().macroMap.get(triggerKb).stream()
-                        .filter((macro) -> !macro.getStrategy().equals(AVOID))
-                        .toList();
-                if (activeMacros.isEmpty()) return cancel;
+        }
+        if (trigger == null) return 0;
+        long start = Metrics.start();
+
+        int cancel = 0;
+        boolean conflict = trigger.submit() && getConflict(key) != null;
+        boolean first = true;
+        boolean ratelimited = false;
+
+        for (Macro macro : trigger.macros()) {
+            boolean send = true;
+
+            switch(macro.getStrategy()) {
+                case SUBMIT -> send = !conflict;
+                case VETO -> cancel = 2;
             }
-            
-            boolean first = true;
-            boolean ratelimited = false;
-            
-            for (Macro macro : activeMacros) {
-                boolean send = true;
-                
-                switch(macro.getStrategy()) {
-                    case SUBMIT -> send = getConflict(key) == null;
-                    case VETO -> cancel = 2;
-                }
-                
-                if (send) {
-                    if (first) {
-                        ratelimited = macro.useRatelimitStatus && !canTrigger(key);
-                        first = false;
-                    }
-                    // Always allow repeat-stop
-                    if (ratelimited && !macro.hasRepeating()) continue;
-                    
-                    macro.trigger(triggerKb);
-                    if (cancel == 0 && macro.getMode().equals(TYPE)) cancel = 1;
+
+            if (send) {
+                if (first) {
+                    ratelimited = macro.useRatelimitStatus && !canTrigger(key);
+                    first = false;
                 }
+                // Always allow repeat-stop
+                if (ratelimited && !macro.hasRepeating()) continue;
+
+                macro.trigger(trigger.keybind(), start);
+                if (cancel == 0 && macro.getMode().equals(TYPE)) cancel = 1;
             }
         }
 
+        Metrics.KEY_HANDLER.recordSince(start);
         return cancel;
     }
 
+    /**
+     * @return the first Minecraft {@link KeyMapping} bound to {@code key}, or
+     * {@code null} if there is none.
+     */
     public static @Nullable KeyMapping getConflict(InputConstants.Key key) {
-        for (KeyMapping keyMapping : Minecraft.getInstance().options.keyMappings) {
-            if (((KeyMappingAccessor)keyMapping).getKey().equals(key)) {
-                return keyMapping;
+        Map<InputConstants.Key, KeyMapping> index = conflictIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (KeyMapping keyMapping : CommandKeys.client.getKeyMappings()) {
+                index.putIfAbsent(((KeyMappingAccessor)keyMapping).getKey(), keyMapping);
             }
+            conflictIndex = index;
         }
-        return null;
+        return index.get(key);
+    }
+
+    /**
+     * Clears the cached index of Minecraft keybinds, causing it to be rebuilt
+     * on the next call to {@link KeybindUtil#getConflict}. Must be called
+     * whenever the key of any {@link KeyMapping} is changed.
+     */
+    public static void invalidateConflicts() {
+        conflictIndex = null;
     }
     
     public static class KeybindInfo {
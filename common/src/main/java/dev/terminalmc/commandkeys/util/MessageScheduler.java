@@ -0,0 +1,342 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.CommandKeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A hashed timer wheel holding all pending scheduled messages.
+ *
+ * <p>Each {@link Entry} is placed in the bucket corresponding to the tick on
+ * which it is due, and buckets are kept in scheduling order, so each tick only
+ * visits the entries of one bucket, and due entries fire in order of due tick,
+ * then scheduling sequence. Repeating entries are re-armed in place.</p>
+ *
+ * <p>Entries belong to a {@link Group} (one per macro), allowing all entries
+ * of a group to be cancelled, or suspended and later resumed, without
+ * scanning the wheel.</p>
+ *
+ * <p>Finished and cancelled entries are returned to a pool for reuse, so
+ * scheduling, ticking and cancelling do not allocate once the pool has grown
+ * to the number of entries in flight. Sending a due message may still
+ * allocate, e.g. when rendering its template or queueing it for sending.</p>
+ */
+public class MessageScheduler {
+    private static final int WHEEL_SIZE = 256; // Must be a power of two
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int MAX_POOL_SIZE = 1024;
+
+    private final Entry[] heads = new Entry[WHEEL_SIZE];
+    private final Entry[] tails = new Entry[WHEEL_SIZE];
+    /**
+     * Groups which may have suspended entries, which are not in the wheel.
+     */
+    private final Set<Group> parkedGroups = new HashSet<>();
+    private long currentTick = 0;
+    private long sequence = 0;
+    private int size = 0;
+    private Entry pool = null;
+    private int poolSize = 0;
+
+    /**
+     * @return the number of entries currently in the wheel, excluding those
+     * belonging to suspended groups.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code message} to be sent after {@code delay} ticks, and
+     * optionally every {@code repeatDelay} ticks thereafter.
+     * @param group the group to which the message belongs.
+     * @param delay the initial delay in ticks. Values less than 1 are treated
+     *              as 1.
+     * @param repeatDelay the repeat delay in ticks, or -1 for no repeat.
+     * @param pressed the time of the triggering key-press, from
+     *                {@link Metrics#start()}, or 0 if not measured.
+     */
+    public void schedule(Group group, int delay, int repeatDelay, PlaceholderUtil.Template message,
+                         boolean addToHistory, boolean showHudMsg, long pressed) {
+        Entry entry = obtain(group, repeatDelay, message, addToHistory, showHudMsg, pressed);
+        group.link(entry);
+        if (group.suspended) {
+            entry.due = Math.max(1, delay);
+            entry.seq = sequence++;
+            entry.parked = true;
+            parkedGroups.add(group);
+        } else {
+            insert(entry, delay);
+        }
+    }
+
+    /**
+     * Advances the wheel by one tick, sending all messages that are due.
+     */
+    public void tick() {
+        currentTick++;
+        int bucket = (int)(currentTick & MASK);
+
+        // Detach due entries first, so that re-armed entries cannot be
+        // visited or reordered within this tick.
+        Entry fired = null;
+        Entry firedTail = null;
+        Entry entry = heads[bucket];
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.due == currentTick) {
+                unlink(entry);
+                if (firedTail == null) fired = entry;
+                else firedTail.next = entry;
+                firedTail = entry;
+            }
+            entry = next;
+        }
+
+        while (fired != null) {
+            Entry next = fired.next;
+            fired.next = null;
+            CommandKeys.send(false, fired.message, fired.addToHistory, fired.showHudMsg,
+                    fired.pressed);
+            // Repeats are not the result of the key-press
+            fired.pressed = 0;
+            if (fired.repeatDelay != -1) {
+                insert(fired, fired.repeatDelay);
+            } else {
+                fired.group.unlink(fired);
+                release(fired);
+            }
+            fired = next;
+        }
+    }
+
+    /**
+     * Cancels entries belonging to {@code group}.
+     * @param repeatingOnly if {@code true}, only repeating entries will be
+     *                      cancelled.
+     */
+    public void cancel(Group group, boolean repeatingOnly) {
+        Entry entry = group.head;
+        while (entry != null) {
+            Entry next = entry.groupNext;
+            if (!repeatingOnly || entry.repeatDelay != -1) {
+                if (!entry.parked) unlink(entry);
+                group.unlink(entry);
+                release(entry);
+            }
+            entry = next;
+        }
+        if (group.isEmpty()) parkedGroups.remove(group);
+    }
+
+    /**
+     * Removes all entries of the specified groups from the wheel, retaining
+     * their remaining delays until resumed.
+     */
+    public void suspend(Iterable<Group> groups) {
+        for (Group group : groups) {
+            group.suspended = true;
+            parkedGroups.add(group);
+            for (Entry entry = group.head; entry != null; entry = entry.groupNext) {
+                if (entry.parked) continue;
+                unlink(entry);
+                entry.due -= currentTick;
+                entry.parked = true;
+            }
+        }
+    }
+
+    /**
+     * Returns all suspended entries of the specified groups to the wheel,
+     * preserving their relative order.
+     */
+    public void resume(Iterable<Group> groups) {
+        List<Entry> parked = new ArrayList<>();
+        for (Group group : groups) {
+            group.suspended = false;
+            parkedGroups.remove(group);
+            for (Entry entry = group.head; entry != null; entry = entry.groupNext) {
+                if (entry.parked) parked.add(entry);
+            }
+        }
+        parked.sort(Comparator.comparingLong((entry) -> entry.seq));
+        for (Entry entry : parked) {
+            entry.parked = false;
+            insert(entry, (int)entry.due);
+        }
+    }
+
+    /**
+     * Removes all entries, including those of suspended groups. The groups
+     * remain suspended.
+     */
+    public void clear() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            Entry entry = heads[i];
+            while (entry != null) {
+                Entry next = entry.next;
+                entry.group.unlink(entry);
+                entry.prev = null;
+                entry.next = null;
+                release(entry);
+                entry = next;
+            }
+            heads[i] = null;
+            tails[i] = null;
+        }
+        size = 0;
+        for (Group group : parkedGroups) {
+            Entry entry = group.head;
+            while (entry != null) {
+                Entry next = entry.groupNext;
+                group.unlink(entry);
+                release(entry);
+                entry = next;
+            }
+        }
+        parkedGroups.clear();
+    }
+
+    private Entry obtain(Group group, int repeatDelay, PlaceholderUtil.Template message,
+                         boolean addToHistory, boolean showHudMsg, long pressed) {
+        Entry entry = pool;
+        if (entry != null) {
+            pool = entry.next;
+            entry.next = null;
+            poolSize--;
+        } else {
+            entry = new Entry();
+        }
+        entry.group = group;
+        entry.repeatDelay = repeatDelay;
+        entry.message = message;
+        entry.addToHistory = addToHistory;
+        entry.showHudMsg = showHudMsg;
+        entry.pressed = pressed;
+        entry.parked = false;
+        return entry;
+    }
+
+    /**
+     * Returns an entry which has been removed from the wheel and its group to
+     * the pool.
+     */
+    private void release(Entry entry) {
+        entry.group = null;
+        entry.message = null;
+        if (poolSize < MAX_POOL_SIZE) {
+            entry.next = pool;
+            pool = entry;
+            poolSize++;
+        }
+    }
+
+    private void insert(Entry entry, int delay) {
+        entry.due = currentTick + Math.max(1, delay);
+        entry.seq = sequence++;
+        int bucket = (int)(entry.due & MASK);
+        Entry tail = tails[bucket];
+        entry.prev = tail;
+        entry.next = null;
+        if (tail == null) heads[bucket] = entry;
+        else tail.next = entry;
+        tails[bucket] = entry;
+        size++;
+    }
+
+    private void unlink(Entry entry) {
+        int bucket = (int)(entry.due & MASK);
+        if (entry.prev == null) heads[bucket] = entry.next;
+        else entry.prev.next = entry.next;
+        if (entry.next == null) tails[bucket] = entry.prev;
+        else entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+        size--;
+    }
+
+    /**
+     * The set of entries scheduled by a single owner.
+     */
+    public static class Group {
+        private Entry head;
+        private boolean suspended;
+        private int count;
+        private int repeating;
+
+        /**
+         * @return {@code true} if this group has no pending entries,
+         * {@code false} otherwise.
+         */
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @return {@code true} if this group has at least one repeating entry,
+         * {@code false} otherwise.
+         */
+        public boolean hasRepeating() {
+            return repeating != 0;
+        }
+
+        private void link(Entry entry) {
+            entry.groupPrev = null;
+            entry.groupNext = head;
+            if (head != null) head.groupPrev = entry;
+            head = entry;
+            count++;
+            if (entry.repeatDelay != -1) repeating++;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.groupPrev == null) head = entry.groupNext;
+            else entry.groupPrev.groupNext = entry.groupNext;
+            if (entry.groupNext != null) entry.groupNext.groupPrev = entry.groupPrev;
+            entry.groupPrev = null;
+            entry.groupNext = null;
+            count--;
+            if (entry.repeatDelay != -1) repeating--;
+        }
+    }
+
+    private static class Entry {
+        Group group;
+        int repeatDelay;
+        PlaceholderUtil.Template message;
+        boolean addToHistory;
+        boolean showHudMsg;
+        long pressed;
+        /**
+         * The tick on which the entry is due, or if parked, the remaining
+         * delay.
+         */
+        long due;
+        long seq;
+        boolean parked;
+        Entry prev;
+        Entry next;
+        Entry groupPrev;
+        Entry groupNext;
+    }
+}
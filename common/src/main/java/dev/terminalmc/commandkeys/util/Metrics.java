@@ -0,0 +1,270 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.CommandKeys;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime performance metrics, recorded only while enabled.
+ *
+ * <p>Recording is lock-free, so metrics may be recorded from any thread.
+ * While disabled, recording costs a single volatile read.</p>
+ */
+public class Metrics {
+    /**
+     * Time spent handling a key-press which triggers macros, not including
+     * sending, which may be delayed or queued.
+     */
+    public static final Histogram KEY_HANDLER = new Histogram("keyHandler", true);
+    /**
+     * Time from a key-press to the sending of each message it triggers,
+     * including any delay and time spent queued. Repeats are not included.
+     */
+    public static final Histogram SEND_LATENCY = new Histogram("sendLatency", true);
+    public static final Histogram TICK = new Histogram("tick", true);
+    public static final Histogram PLACEHOLDERS = new Histogram("placeholders", true);
+    public static final Counter RATELIMITED = new Counter("ratelimited");
+    public static final Histogram PENDING = new Histogram("pending", false);
+    /**
+     * Messages waiting in the {@link SendQueue} for the send rate to allow
+     * them, sampled every tick.
+     */
+    public static final Histogram QUEUED = new Histogram("queued", false);
+    public static final Histogram CONFIG_SAVE = new Histogram("configSave", true);
+    public static final Histogram CONFIG_WRITE = new Histogram("configWrite", true);
+    public static final List<Metric> ALL = List.of(
+            KEY_HANDLER, SEND_LATENCY, TICK, PLACEHOLDERS, RATELIMITED, PENDING,
+            QUEUED, CONFIG_SAVE, CONFIG_WRITE);
+
+    private static final DateTimeFormatter FILE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static volatile boolean enabled = false;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording. Starting clears all metrics.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && !Metrics.enabled) ALL.forEach(Metric::reset);
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @return the start time of a measurement to be passed to
+     * {@link Histogram#recordSince}, or 0 if not recording.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Writes the current value of all metrics to a new CSV file in
+     * {@code dir}.
+     * @return the file written.
+     */
+    public static Path export(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve(CommandKeys.MOD_ID + "-metrics-"
+                + LocalDateTime.now().format(FILE_TIME_FORMAT) + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("metric,unit,count,mean,p50,p90,p99,max");
+            writer.newLine();
+            for (Metric metric : ALL) {
+                writer.write(metric.toCsv());
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    public abstract static class Metric {
+        private final String name;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name of this metric, also used as its translation key.
+         */
+        public String getName() {
+            return name;
+        }
+
+        abstract void reset();
+
+        abstract String toCsv();
+    }
+
+    /**
+     * A count of events.
+     */
+    public static class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        Counter(String name) {
+            super(name);
+        }
+
+        public void increment() {
+            if (enabled) count.increment();
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+        }
+
+        @Override
+        String toCsv() {
+            return getName() + ",count," + get() + ",,,,,";
+        }
+    }
+
+    /**
+     * A distribution of non-negative values, kept in buckets of bounded
+     * relative width so that percentiles are accurate to within
+     * {@code 1/SUB_BUCKETS} of the true value.
+     *
+     * <p>Values below {@code SUB_BUCKETS} have a bucket each. Above that,
+     * each power of two is split into {@code SUB_BUCKETS} equal buckets.</p>
+     */
+    public static class Histogram extends Metric {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BITS) << SUB_BITS;
+
+        private final boolean nanos;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * @param nanos {@code true} if values are durations in nanoseconds,
+         *              {@code false} if they are counts.
+         */
+        Histogram(String name, boolean nanos) {
+            super(name);
+            this.nanos = nanos;
+        }
+
+        public boolean isNanos() {
+            return nanos;
+        }
+
+        public void record(long value) {
+            if (!enabled) return;
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucket(value));
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        /**
+         * Records the time elapsed since {@code start}, if it was obtained
+         * from {@link Metrics#start()} while recording.
+         */
+        public void recordSince(long start) {
+            if (start != 0) record(System.nanoTime() - start);
+        }
+
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) return new Snapshot(0, 0, 0, 0, 0, 0);
+            return new Snapshot(total, sum.get() / (double)total,
+                    percentile(counts, total, 0.5),
+                    percentile(counts, total, 0.9),
+                    percentile(counts, total, 0.99),
+                    max.get());
+        }
+
+        @Override
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        @Override
+        String toCsv() {
+            Snapshot s = snapshot();
+            return getName() + "," + (nanos ? "ns" : "count") + "," + s.count() + ","
+                    + String.format(Locale.ROOT, "%.1f", s.mean()) + "," + s.p50() + "," + s.p90() + ","
+                    + s.p99() + "," + s.max();
+        }
+
+        /**
+         * @return the upper bound of the bucket containing the
+         * {@code quantile} of the recorded values.
+         */
+        private static long percentile(long[] counts, long total, double quantile) {
+            long target = Math.max(1, (long)Math.ceil(total * quantile));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target) return upperBound(i);
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int)value;
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return ((exp - SUB_BITS + 1) << SUB_BITS) | sub;
+        }
+
+        private static long upperBound(int bucket) {
+            int group = bucket >>> SUB_BITS;
+            int sub = bucket & (SUB_BUCKETS - 1);
+            if (group == 0) return sub;
+            int shift = group - 1;
+            return ((long)(SUB_BUCKETS | sub) << shift) + ((1L << shift) - 1);
+        }
+
+        /**
+         * Percentiles are the upper bounds of their buckets.
+         */
+        public record Snapshot(long count, double mean, long p50, long p90, long p99, long max) {}
+    }
+}
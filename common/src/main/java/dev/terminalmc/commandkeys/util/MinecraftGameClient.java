@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import net.minecraft.client.KeyMapping;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screens.ChatScreen;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.util.ArrayListDeque;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The {@link GameClient} backed by the running game.
+ */
+public class MinecraftGameClient implements GameClient {
+
+    // State
+
+    @Override
+    public boolean isScreenOpen() {
+        return Minecraft.getInstance().screen != null;
+    }
+
+    @Override
+    public boolean isInSingleplayer() {
+        return Minecraft.getInstance().getSingleplayerServer() != null;
+    }
+
+    @Override
+    public boolean hasPlayer() {
+        return Minecraft.getInstance().player != null;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        Minecraft mc = Minecraft.getInstance();
+        return mc.player != null && mc.level != null && !mc.isPaused();
+    }
+
+    @Override
+    public boolean canSendMessages() {
+        Minecraft mc = Minecraft.getInstance();
+        return mc.player != null && mc.player.connection.isAcceptingMessages();
+    }
+
+    @Override
+    public boolean isKeyDown(InputConstants.Key key) {
+        return InputConstants.isKeyDown(
+                Minecraft.getInstance().getWindow().getWindow(), key.getValue());
+    }
+
+    @Override
+    public KeyMapping[] getKeyMappings() {
+        return Minecraft.getInstance().options.keyMappings;
+    }
+
+    // Player
+
+    @Override
+    public String getPlayerName() {
+        return Minecraft.getInstance().player.getName().getString();
+    }
+
+    @Override
+    public BlockPos getPlayerBlockPos() {
+        return Minecraft.getInstance().player.blockPosition();
+    }
+
+    @Override
+    public HitResult pick(double distance) {
+        return Minecraft.getInstance().player.pick(distance, 0.0F, false);
+    }
+
+    @Override
+    public double getViewDistance() {
+        return Minecraft.getInstance().levelRenderer.getLastViewDistance();
+    }
+
+    @Override
+    public Vec3 getLookAngle() {
+        return Minecraft.getInstance().player.getLookAngle();
+    }
+
+    // Text sources
+
+    @Override
+    public String getClipboard() {
+        return Minecraft.getInstance().keyboardHandler.getClipboard();
+    }
+
+    @Override
+    public @Nullable String getLastSentMessage() {
+        return Minecraft.getInstance().gui.getChat().getRecentChat().peekLast();
+    }
+
+    @Override
+    public @Nullable String getLastCommand() {
+        if (Minecraft.getInstance().commandHistory().history() instanceof ArrayListDeque<String> deque) {
+            return deque.peekLast();
+        }
+        CommandKeys.LOG.error("Command history not ArrayListDeque");
+        return null;
+    }
+
+    // Output
+
+    @Override
+    public void sendChat(String message) {
+        Minecraft.getInstance().player.connection.sendChat(message);
+    }
+
+    @Override
+    public void sendCommand(String command) {
+        Minecraft.getInstance().player.connection.sendCommand(command);
+    }
+
+    @Override
+    public void addRecentChat(String message) {
+        Minecraft.getInstance().gui.getChat().addRecentChat(message);
+    }
+
+    @Override
+    public void setOverlayMessage(Component message) {
+        Minecraft.getInstance().gui.setOverlayMessage(message, false);
+    }
+
+    @Override
+    public void addChatMessage(Component message) {
+        Minecraft.getInstance().gui.getChat().addMessage(message);
+    }
+
+    @Override
+    public void openChat(String message) {
+        Minecraft.getInstance().setScreen(new ChatScreen(message));
+    }
+}
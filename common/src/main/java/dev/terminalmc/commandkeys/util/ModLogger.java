@@ -19,51 +19,231 @@ package dev.terminalmc.commandkeys.util;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.util.StackLocatorUtil;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Prefixes messages with the logger name, and at {@link Level#DEBUG} also the
+ * simple name of the owning class of a logger from
+ * {@link ModLogger#forClass}.
+ *
+ * <p>Messages are {@code {}}-parameterized patterns, formatted only if their
+ * level is enabled. Prefixed patterns are cached by pattern, so the owning
+ * class is fixed when the logger is created rather than looked up per call.
+ * Calls with up to two parameters use log4j's reusable messages and do not
+ * allocate, apart from any boxing of primitive parameters.</p>
+ */
 public class ModLogger {
+    /**
+     * Limits the caches in case of patterns which are not constants.
+     */
+    private static final int MAX_CACHED_PATTERNS = 256;
+
     private final Logger logger;
+    private final String prefix;
+    private final String debugPrefix;
+    private final Map<String, String> patterns = new ConcurrentHashMap<>();
+    private final Map<String, String> debugPatterns = new ConcurrentHashMap<>();
 
     public ModLogger(Logger logger) {
-        this.logger = logger;
+        this(logger, null);
     }
 
     public ModLogger(String name) {
-        this(LogManager.getLogger(name));
+        this(LogManager.getLogger(name, ReusableMessageFactory.INSTANCE));
+    }
+
+    private ModLogger(Logger logger, @Nullable Class<?> owner) {
+        this.logger = logger;
+        this.prefix = "[" + logger.getName() + "]: ";
+        this.debugPrefix = owner == null ? prefix
+                : "[" + logger.getName() + "/" + owner.getSimpleName() + "]: ";
+    }
+
+    /**
+     * @return a logger writing to the same log as this one, which includes
+     * the simple name of {@code owner} in {@link Level#DEBUG} messages. Should
+     * be kept in a static field of {@code owner}.
+     */
+    public ModLogger forClass(Class<?> owner) {
+        return new ModLogger(logger, owner);
     }
 
-    private String edit(Level level, String message) {
-        if (level == Level.DEBUG) return String.format("[%s/%s]: %s", logger.getName(),
-                StackLocatorUtil.getCallerClass(4).getSimpleName(), message);
-        return String.format("[%s]: %s", logger.getName(), message);
+    /**
+     * @return {@code message} with the prefix for levels other than
+     * {@link Level#DEBUG}.
+     */
+    private String pattern(String message) {
+        return pattern(patterns, prefix, message);
+    }
+
+    /**
+     * @return {@code message} with the {@link Level#DEBUG} prefix.
+     */
+    String debugPattern(String message) {
+        return pattern(debugPatterns, debugPrefix, message);
+    }
+
+    private static String pattern(Map<String, String> cache, String prefix, String message) {
+        String pattern = cache.get(message);
+        if (pattern == null) {
+            pattern = prefix + message;
+            if (cache.size() < MAX_CACHED_PATTERNS) cache.put(message, pattern);
+        }
+        return pattern;
+    }
+
+    private void log(Level level, String message) {
+        if (!logger.isEnabled(level)) return;
+        logger.log(level, pattern(message));
+    }
+
+    private void log(Level level, String message, Object p0) {
+        if (!logger.isEnabled(level)) return;
+        logger.log(level, pattern(message), p0);
+    }
+
+    private void log(Level level, String message, Object p0, Object p1) {
+        if (!logger.isEnabled(level)) return;
+        logger.log(level, pattern(message), p0, p1);
     }
 
     private void log(Level level, String message, Object... args) {
         if (!logger.isEnabled(level)) return;
-        logger.log(level, edit(level, message), args);
+        logger.log(level, pattern(message), args);
+    }
+
+    private void log(Level level, Supplier<String> message) {
+        if (!logger.isEnabled(level)) return;
+        logger.log(level, "{}{}", prefix, message.get());
+    }
+
+    public void trace(String message) {
+        log(Level.TRACE, message);
     }
 
-    public void trace(String message, Object... args){
+    public void trace(String message, Object p0) {
+        log(Level.TRACE, message, p0);
+    }
+
+    public void trace(String message, Object p0, Object p1) {
+        log(Level.TRACE, message, p0, p1);
+    }
+
+    public void trace(String message, Object... args) {
         log(Level.TRACE, message, args);
     }
 
-    public void debug(String message, Object... args){
-        log(Level.DEBUG, message, args);
+    public void trace(Supplier<String> message) {
+        log(Level.TRACE, message);
+    }
+
+    public void debug(String message) {
+        if (!logger.isDebugEnabled()) return;
+        logger.debug(debugPattern(message));
+    }
+
+    public void debug(String message, Object p0) {
+        if (!logger.isDebugEnabled()) return;
+        logger.debug(debugPattern(message), p0);
+    }
+
+    public void debug(String message, Object p0, Object p1) {
+        if (!logger.isDebugEnabled()) return;
+        logger.debug(debugPattern(message), p0, p1);
+    }
+
+    public void debug(String message, Object... args) {
+        if (!logger.isDebugEnabled()) return;
+        logger.debug(debugPattern(message), args);
+    }
+
+    public void debug(Supplier<String> message) {
+        if (!logger.isDebugEnabled()) return;
+        logger.debug("{}{}", debugPrefix, message.get());
     }
 
-    public void info(String message, Object... args){
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public void info(String message, Object p0) {
+        log(Level.INFO, message, p0);
+    }
+
+    public void info(String message, Object p0, Object p1) {
+        log(Level.INFO, message, p0, p1);
+    }
+
+    public void info(String message, Object... args) {
         log(Level.INFO, message, args);
     }
 
-    public void warn(String message, Object... args){
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public void warn(String message, Object p0) {
+        log(Level.WARN, message, p0);
+    }
+
+    public void warn(String message, Object p0, Object p1) {
+        log(Level.WARN, message, p0, p1);
+    }
+
+    public void warn(String message, Object... args) {
         log(Level.WARN, message, args);
     }
 
-    public void error(String message, Object... args){
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public void error(String message, Object p0) {
+        log(Level.ERROR, message, p0);
+    }
+
+    public void error(String message, Object p0, Object p1) {
+        log(Level.ERROR, message, p0, p1);
+    }
+
+    public void error(String message, Object... args) {
         log(Level.ERROR, message, args);
     }
 
-    public void fatal(String message, Object... args){
+    public void error(Supplier<String> message) {
+        log(Level.ERROR, message);
+    }
+
+    public void fatal(String message) {
+        log(Level.FATAL, message);
+    }
+
+    public void fatal(String message, Object p0) {
+        log(Level.FATAL, message, p0);
+    }
+
+    public void fatal(String message, Object p0, Object p1) {
+        log(Level.FATAL, message, p0, p1);
+    }
+
+    public void fatal(String message, Object... args) {
         log(Level.FATAL, message, args);
     }
+
+    public void fatal(Supplier<String> message) {
+        log(Level.FATAL, message);
+    }
 }
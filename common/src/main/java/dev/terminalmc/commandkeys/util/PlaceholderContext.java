@@ -0,0 +1,93 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.config.Config;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.BlockHitResult;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A snapshot of the world state used by position and look placeholders.
+ *
+ * <p>Each value is computed lazily at most once per client tick, and shared by
+ * all messages sent in that tick.</p>
+ */
+public class PlaceholderContext {
+    private static long tick = 0;
+
+    private static long playerBlockPosTick = -1;
+    private static @Nullable BlockPos playerBlockPos;
+    private static long lookBlockPosTick = -1;
+    private static @Nullable BlockPos lookBlockPos;
+    private static long lookAngleTick = -1;
+    private static @Nullable Vec3 lookAngle;
+
+    /**
+     * Invalidates the snapshot. Should be called once per client tick.
+     */
+    public static void tick() {
+        tick++;
+    }
+
+    /**
+     * Breaks if player is not in-game.
+     */
+    public static BlockPos getPlayerBlockPos() {
+        if (playerBlockPosTick != tick) {
+            playerBlockPos = CommandKeys.client.getPlayerBlockPos();
+            playerBlockPosTick = tick;
+        }
+        return playerBlockPos;
+    }
+
+    /**
+     * Breaks if player is not in-game.
+     * @return the position of the block the player is looking at, up to
+     * {@link Config#getLookDistance()} blocks away, or {@code null} if there
+     * is none. If the distance is {@link Config#LOOK_DISTANCE_AUTO}, it is
+     * based on the render distance, with a minimum of 384 blocks.
+     */
+    public static @Nullable BlockPos getLookBlockPos() {
+        // Note: ProjectileUtil.getEntityHitResult for entities
+        if (lookBlockPosTick != tick) {
+            int distance = Config.get().getLookDistance();
+            HitResult result = CommandKeys.client.pick(distance != Config.LOOK_DISTANCE_AUTO
+                    ? distance
+                    : Math.max(384, (CommandKeys.client.getViewDistance() + 1) * 16));
+            lookBlockPos = result.getType().equals(HitResult.Type.BLOCK)
+                    ? ((BlockHitResult)result).getBlockPos()
+                    : null;
+            lookBlockPosTick = tick;
+        }
+        return lookBlockPos;
+    }
+
+    /**
+     * Breaks if player is not in-game.
+     */
+    public static Vec3 getLookAngle() {
+        if (lookAngleTick != tick) {
+            lookAngle = CommandKeys.client.getLookAngle();
+            lookAngleTick = tick;
+        }
+        return lookAngle;
+    }
+}
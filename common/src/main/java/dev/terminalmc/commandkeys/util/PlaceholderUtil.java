@@ -18,158 +18,368 @@ package dev.terminalmc.commandkeys.util;
 
 import com.mojang.datafixers.util.Pair;
 import dev.terminalmc.commandkeys.CommandKeys;
-import dev.terminalmc.commandkeys.mixin.accessor.ChatComponentAccessor;
-import net.minecraft.client.GuiMessage;
-import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
-import net.minecraft.network.chat.Component;
-import net.minecraft.network.chat.MutableComponent;
-import net.minecraft.network.chat.contents.TranslatableContents;
-import net.minecraft.util.ArrayListDeque;
+import net.minecraft.core.Direction;
 import net.minecraft.util.Mth;
-import net.minecraft.world.phys.BlockHitResult;
-import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
-import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+/**
+ * Replaces placeholders in outgoing messages.
+ *
+ * <p>Messages are compiled once by {@link PlaceholderUtil#compile} into a
+ * {@link Template} of literal segments and typed placeholder nodes, which can
+ * then be rendered in a single pass.</p>
+ */
 public class PlaceholderUtil {
 
     private static int faults;
-    private static @Nullable BlockPos playerBlockPos;
-    private static @Nullable BlockPos lookBlockPos;
-    private static @Nullable Vec3 lookAngle;
-    private static @Nullable String pmSenderName;
-
-    private static final SimplePlaceholder[] SIMPLE_PLACEHOLDERS = {
-            new SimplePlaceholder("%lastsent%", PlaceholderUtil::getLastMessage),
-            new SimplePlaceholder("%lastcmd%", PlaceholderUtil::getLastCommand),
-            new SimplePlaceholder("%clipboard%", () -> getClipboard(null)),
-            new SimplePlaceholder("%myname%", PlaceholderUtil::getPlayerName),
-            new SimplePlaceholder("%pmsender%", PlaceholderUtil::getPmSenderName),
-            new SimplePlaceholder("%pos%", () -> getPlayerBlockPos(new String[]{"0", "0"})),
-            new SimplePlaceholder("%x%", () -> getPlayerBlockX(new String[]{"0"})),
-            new SimplePlaceholder("%y%", () -> getPlayerBlockY(new String[]{"0"})),
-            new SimplePlaceholder("%z%", () -> getPlayerBlockZ(new String[]{"0"})),
-            new SimplePlaceholder("%lpos%", () -> getLookBlockPos(new String[]{"0", "0"})),
-            new SimplePlaceholder("%lx%", () -> getLookBlockX(new String[]{"0"})),
-            new SimplePlaceholder("%ly%", () -> getLookBlockY(new String[]{"0"})),
-            new SimplePlaceholder("%lz%", () -> getLookBlockZ(new String[]{"0"})),
-    };
-
-    private static final Placeholder[] REGEX_PLACEHOLDERS = {
-            new Placeholder(Pattern.compile("%#(.*)%"), 1, PlaceholderUtil::getRecentChat),
-            new Placeholder(Pattern.compile("%clipboard#(.*)%"), 1, PlaceholderUtil::getClipboard),
-            new Placeholder(Pattern.compile("%pos([FBLR])(\\d+)%"), 2, PlaceholderUtil::getPlayerBlockPos),
-            new Placeholder(Pattern.compile("%x([+-]\\d+)%"), 1, PlaceholderUtil::getPlayerBlockX),
-            new Placeholder(Pattern.compile("%y([+-]\\d+)%"), 1, PlaceholderUtil::getPlayerBlockY),
-            new Placeholder(Pattern.compile("%z([+-]\\d+)%"), 1, PlaceholderUtil::getPlayerBlockZ),
-            new Placeholder(Pattern.compile("%lpos([FBLR])(\\d+)%"), 2, PlaceholderUtil::getLookBlockPos),
-            new Placeholder(Pattern.compile("%lx([+-]\\d+)%"), 1, PlaceholderUtil::getLookBlockX),
-            new Placeholder(Pattern.compile("%ly([+-]\\d+)%"), 1, PlaceholderUtil::getLookBlockY),
-            new Placeholder(Pattern.compile("%lz([+-]\\d+)%"), 1, PlaceholderUtil::getLookBlockZ),
-    };
+
+    private static final Map<String, Node> SIMPLE_PLACEHOLDERS = new HashMap<>();
+    static {
+        SIMPLE_PLACEHOLDERS.put("lastsent", (sb) -> sb.append(getLastMessage()));
+        SIMPLE_PLACEHOLDERS.put("lastcmd", (sb) -> sb.append(getLastCommand()));
+        SIMPLE_PLACEHOLDERS.put("clipboard", (sb) -> sb.append(getClipboard(null)));
+        SIMPLE_PLACEHOLDERS.put("myname", (sb) -> sb.append(getPlayerName()));
+        SIMPLE_PLACEHOLDERS.put("pmsender", (sb) -> sb.append(getPmSenderName()));
+        SIMPLE_PLACEHOLDERS.put("pos", new BlockPosNode(false, 'F', 0));
+        SIMPLE_PLACEHOLDERS.put("x", new BlockCoordNode(false, Direction.Axis.X, 0));
+        SIMPLE_PLACEHOLDERS.put("y", new BlockCoordNode(false, Direction.Axis.Y, 0));
+        SIMPLE_PLACEHOLDERS.put("z", new BlockCoordNode(false, Direction.Axis.Z, 0));
+        SIMPLE_PLACEHOLDERS.put("lpos", new BlockPosNode(true, 'F', 0));
+        SIMPLE_PLACEHOLDERS.put("lx", new BlockCoordNode(true, Direction.Axis.X, 0));
+        SIMPLE_PLACEHOLDERS.put("ly", new BlockCoordNode(true, Direction.Axis.Y, 0));
+        SIMPLE_PLACEHOLDERS.put("lz", new BlockCoordNode(true, Direction.Axis.Z, 0));
+    }
+
+    private static final int PATTERN_CACHE_SIZE = 64;
+    private static final Map<String, Pattern> PATTERN_CACHE = 
+            new LinkedHashMap<>(16, 0.75F, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+                    return size() > PATTERN_CACHE_SIZE;
+                }
+            };
+
+    private static final String RECENT_CHAT_PREFIX = "%#";
+    private static final String CLIPBOARD_PREFIX = "%clipboard#";
+
+    // Compilation
 
     /**
-     * Breaks if player is not in-game. Does not self-check for performance
-     * reasons, but expects caller to validate.
+     * Compiles {@code message} into a {@link Template}.
+     *
+     * <p>Regex placeholders ({@code %#regex%} and {@code %clipboard#regex%})
+     * extend to the last {@code %} on the same line which precedes the next
+     * other placeholder.</p>
      */
-    public static Pair<String,Integer> replace(String message) {
-        if (!message.contains("%")) return new Pair<>(message, 0);
-        reset();
-        for (SimplePlaceholder p : SIMPLE_PLACEHOLDERS) message = p.process(message);
-        for (Placeholder p : REGEX_PLACEHOLDERS) message = p.process(message);
+    public static Template compile(String message) {
+        return compile(message, true);
+    }
 
-        return new Pair<>(message, faults);
+    /**
+     * Checks the regex placeholders of {@code message} without adding them to
+     * the pattern cache, for validating messages while they are being edited.
+     * @return a description of the first invalid regex in {@code message}, or
+     * {@code null} if there is none.
+     */
+    public static @Nullable String validate(String message) {
+        return compile(message, false).getError();
+    }
+
+    private static Template compile(String message, boolean cache) {
+        if (message.indexOf('%') == -1) return new Template(message, null, null);
+        List<Node> nodes = new ArrayList<>();
+        String error = null;
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < message.length()) {
+            char c = message.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            Node node = null;
+            int next = -1;
+            if (message.startsWith(RECENT_CHAT_PREFIX, i)) {
+                int close = findRegexClose(message, i + RECENT_CHAT_PREFIX.length());
+                if (close != -1) {
+                    String regex = message.substring(i + RECENT_CHAT_PREFIX.length(), close);
+                    Pattern pattern = null;
+                    try {
+                        pattern = cache ? getPattern(regex) : Pattern.compile(regex);
+                    } catch (PatternSyntaxException e) {
+                        if (error == null) error = e.getDescription() + ": " + regex;
+                    }
+                    node = new RecentChatNode(pattern);
+                    next = close + 1;
+                }
+            } else if (message.startsWith(CLIPBOARD_PREFIX, i)) {
+                int close = findRegexClose(message, i + CLIPBOARD_PREFIX.length());
+                if (close != -1) {
+                    String regex = message.substring(i + CLIPBOARD_PREFIX.length(), close);
+                    Pattern pattern = null;
+                    try {
+                        pattern = cache ? getPattern(regex) : Pattern.compile(regex);
+                    } catch (PatternSyntaxException e) {
+                        if (error == null) error = e.getDescription() + ": " + regex;
+                    }
+                    node = new ClipboardNode(pattern);
+                    next = close + 1;
+                }
+            } else {
+                int close = message.indexOf('%', i + 1);
+                if (close != -1) {
+                    node = parseNode(message.substring(i + 1, close));
+                    next = close + 1;
+                }
+            }
+            if (node == null) {
+                literal.append(c);
+                i++;
+            } else {
+                if (!literal.isEmpty()) {
+                    String str = literal.toString();
+                    nodes.add((sb) -> sb.append(str));
+                    literal.setLength(0);
+                }
+                nodes.add(node);
+                i = next;
+            }
+        }
+        if (nodes.isEmpty()) return new Template(message, null, null);
+        if (!literal.isEmpty()) {
+            String str = literal.toString();
+            nodes.add((sb) -> sb.append(str));
+        }
+        return new Template(message, nodes.toArray(new Node[0]), error);
     }
 
-    private static void reset() {
-        faults = 0;
-        playerBlockPos = null;
-        lookBlockPos = null;
-        lookAngle = null;
-        pmSenderName = null;
+    /**
+     * @return the compiled form of {@code regex}, from the cache if present.
+     * @throws PatternSyntaxException if {@code regex} is invalid.
+     */
+    public static Pattern getPattern(String regex) {
+        Pattern pattern = PATTERN_CACHE.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            PATTERN_CACHE.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    static boolean isCached(String regex) {
+        return PATTERN_CACHE.containsKey(regex);
+    }
+
+    /**
+     * @return the index of the {@code %} closing a regex placeholder whose
+     * argument begins at {@code start}, or -1 if there is none.
+     */
+    private static int findRegexClose(String message, int start) {
+        int lineEnd = message.indexOf('\n', start);
+        if (lineEnd == -1) lineEnd = message.length();
+        int limit = lineEnd;
+        for (int i = message.indexOf('%', start); i != -1 && i < lineEnd; 
+             i = message.indexOf('%', i + 1)) {
+            int close = message.indexOf('%', i + 1);
+            if (close != -1 && close < lineEnd 
+                    && parseNode(message.substring(i + 1, close)) != null) {
+                limit = i;
+                break;
+            }
+        }
+        int close = message.lastIndexOf('%', limit - 1);
+        return close >= start ? close : -1;
+    }
+
+    /**
+     * Parses the contents of a non-regex placeholder.
+     * @param name the placeholder with the enclosing {@code %} removed.
+     * @return the corresponding node, or {@code null} if {@code name} is not a
+     * valid placeholder.
+     */
+    private static @Nullable Node parseNode(String name) {
+        Node node = SIMPLE_PLACEHOLDERS.get(name);
+        if (node != null) return node;
+        
+        boolean look = name.startsWith("l");
+        String rest = look ? name.substring(1) : name;
+        if (rest.startsWith("pos") && rest.length() > 4) {
+            // pos([FBLR])(\d+)
+            char dir = rest.charAt(3);
+            if ("FBLR".indexOf(dir) == -1) return null;
+            Integer offset = parseDigits(rest.substring(4));
+            return offset == null ? null : new BlockPosNode(look, dir, offset);
+        }
+        if (rest.length() > 2) {
+            // [xyz]([+-]\d+)
+            Direction.Axis axis = switch(rest.charAt(0)) {
+                case 'x' -> Direction.Axis.X;
+                case 'y' -> Direction.Axis.Y;
+                case 'z' -> Direction.Axis.Z;
+                default -> null;
+            };
+            char sign = rest.charAt(1);
+            if (axis == null || (sign != '+' && sign != '-')) return null;
+            Integer offset = parseDigits(rest.substring(2));
+            return offset == null ? null : new BlockCoordNode(look, axis, 
+                    sign == '-' ? -offset : offset);
+        }
+        return null;
+    }
+
+    private static @Nullable Integer parseDigits(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) < '0' || str.charAt(i) > '9') return null;
+        }
+        try {
+            return Integer.parseInt(str);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Rendering
+
+    /**
+     * A message compiled into literal segments and placeholder nodes.
+     */
+    public static class Template {
+        private final String string;
+        private final @Nullable Node[] nodes;
+        private final @Nullable String error;
+
+        private Template(String string, @Nullable Node[] nodes, @Nullable String error) {
+            this.string = string;
+            this.nodes = nodes;
+            this.error = error;
+        }
+
+        /**
+         * @return the source string of this template.
+         */
+        public String getString() {
+            return string;
+        }
+
+        /**
+         * @return a description of the first invalid regex in this template, 
+         * or {@code null} if there is none.
+         */
+        public @Nullable String getError() {
+            return error;
+        }
+
+        /**
+         * Breaks if player is not in-game. Does not self-check for performance
+         * reasons, but expects caller to validate.
+         * @return the rendered message, and the number of placeholders which 
+         * could not be resolved.
+         */
+        public Pair<String,Integer> render() {
+            if (nodes == null) return new Pair<>(string, 0);
+            long start = Metrics.start();
+            faults = 0;
+            StringBuilder sb = new StringBuilder(string.length() + 16);
+            for (Node node : nodes) node.render(sb);
+            Metrics.PLACEHOLDERS.recordSince(start);
+            return new Pair<>(sb.toString(), faults);
+        }
     }
-    
+
     private static String fault() {
         faults++;
         return "?";
     }
 
-    private record SimplePlaceholder(String string, Supplier<String> supplier) {
-        public String process(String message) {
-            if (!message.contains(string)) return message;
-            String replacement = supplier.get();
-            return message.replaceAll(string, replacement);
+    @FunctionalInterface
+    private interface Node {
+        void render(StringBuilder sb);
+    }
+
+    private record RecentChatNode(@Nullable Pattern pattern) implements Node {
+        @Override
+        public void render(StringBuilder sb) {
+            sb.append(pattern == null ? fault() : getRecentChat(pattern));
         }
     }
 
-    private record Placeholder(Pattern pattern, int groups, Function<String[], String> operator) {
-        public String process(String message) {
-            Matcher matcher = pattern.matcher(message);
-            while (true) {
-                if (!matcher.find()) return message;
-                String[] args = new String[groups];
-                for (int i = 0; i < args.length; i++) args[i] = matcher.group(i + 1);
-                message = matcher.replaceFirst(operator.apply(args));
+    private record ClipboardNode(@Nullable Pattern pattern) implements Node {
+        @Override
+        public void render(StringBuilder sb) {
+            sb.append(pattern == null ? fault() : getClipboard(pattern));
+        }
+    }
+
+    private record BlockCoordNode(boolean look, Direction.Axis axis, int offset) implements Node {
+        @Override
+        public void render(StringBuilder sb) {
+            BlockPos pos = look 
+                    ? PlaceholderContext.getLookBlockPos() 
+                    : PlaceholderContext.getPlayerBlockPos();
+            if (pos == null) sb.append(fault());
+            else sb.append(pos.get(axis) + offset);
+        }
+    }
+
+    private record BlockPosNode(boolean look, char dir, int offset) implements Node {
+        @Override
+        public void render(StringBuilder sb) {
+            BlockPos pos = look 
+                    ? PlaceholderContext.getLookBlockPos() 
+                    : PlaceholderContext.getPlayerBlockPos();
+            if (pos == null) {
+                sb.append(fault());
+                return;
             }
+            Vec3 vec = pos.getBottomCenter();
+            if (offset != 0) vec = offsetCardinalDirection(
+                    vec, PlaceholderContext.getLookAngle(), dir, offset);
+            sb.append(Mth.floor(vec.x)).append(' ')
+                    .append(Mth.floor(vec.y)).append(' ')
+                    .append(Mth.floor(vec.z));
         }
     }
 
     // Incoming message
 
-    private static String getRecentChat(@NotNull String[] pattern) {
+    private static String getRecentChat(Pattern regex) {
+        Matcher matcher = ChatIndex.findRecent(regex);
+        if (matcher == null) {
+            CommandKeys.LOG.warn("Recent chat placeholder failed: No message found: Checked {}",
+                    ChatIndex.size());
+            return fault();
+        }
         try {
-            Pattern regex = Pattern.compile(pattern[0]);
-
-            int i = 0;
-            for (GuiMessage guiMsg : ((ChatComponentAccessor)
-                    Minecraft.getInstance().gui.getChat()).getAllMessages()) {
-                if (++i > 50) break;
-
-                Matcher matcher = regex.matcher(guiMsg.content().getString());
-                if (matcher.find()) {
-                    try {
-                        return matcher.group(1);
-                    } catch (IndexOutOfBoundsException e) {
-                        CommandKeys.LOG.error("Recent chat placeholder failed: Group 1 not available: " + e);
-                        return fault();
-                    }
-                }
-            }
-
-            CommandKeys.LOG.warn("Recent chat placeholder failed: No message found: Checked " + i);
-        } catch (PatternSyntaxException e) {
-            CommandKeys.LOG.error("Recent chat placeholder failed: Invalid regex: " + e);
+            return matcher.group(1);
+        } catch (IndexOutOfBoundsException e) {
+            CommandKeys.LOG.error("Recent chat placeholder failed: Group 1 not available: {}", e);
+            return fault();
         }
-
-        return fault();
     }
 
     // Clipboard
 
-    private static String getClipboard(@Nullable String[] pattern) {
-        String clipboard = Minecraft.getInstance().keyboardHandler.getClipboard();
+    private static String getClipboard(@Nullable Pattern regex) {
+        String clipboard = CommandKeys.client.getClipboard();
         if (clipboard.isEmpty()) {
             CommandKeys.LOG.warn("Clipboard placeholder failed: No data");
             return fault();
         }
-        if (pattern != null) {
-            try {
-                if (!Pattern.compile(pattern[0]).matcher(clipboard).find()) {
-                    CommandKeys.LOG.warn("Clipboard placeholder failed: Non-matching regex");
-                    return fault();
-                }
-            } catch (PatternSyntaxException e) {
-                CommandKeys.LOG.warn("Clipboard placeholder failed: Invalid regex: " + e);
-                return fault();
-            }
+        if (regex != null && !regex.matcher(clipboard).find()) {
+            CommandKeys.LOG.warn("Clipboard placeholder failed: Non-matching regex");
+            return fault();
         }
         return clipboard;
     }
@@ -177,164 +387,71 @@ public class PlaceholderUtil {
     // Message history
 
     private static String getLastMessage() {
-        String lastMsg = Minecraft.getInstance().gui.getChat().getRecentChat().peekLast();
+        String lastMsg = CommandKeys.client.getLastSentMessage();
         if (lastMsg == null) return fault();
         return lastMsg;
     }
 
     private static String getLastCommand() {
-        if (Minecraft.getInstance().commandHistory().history() instanceof ArrayListDeque<String> deque) {
-            String lastCmd = deque.peekLast();
-            if (lastCmd != null) return lastCmd;
-        } else {
-            CommandKeys.LOG.error("Command history not ArrayListDeque");
-        }
-        return fault();
+        String lastCmd = CommandKeys.client.getLastCommand();
+        if (lastCmd == null) return fault();
+        return lastCmd;
     }
 
     // Player name
 
     private static String getPlayerName() {
-        return Minecraft.getInstance().player.getName().getString();
+        return CommandKeys.client.getPlayerName();
     }
 
     // Incoming private message sender
 
     private static String getPmSenderName() {
-        if (pmSenderName != null) return pmSenderName;
-        int i = 0;
-        for (GuiMessage guiMsg : ((ChatComponentAccessor)
-                Minecraft.getInstance().gui.getChat()).getAllMessages()) {
-            if (++i > 50) break;
-            Component msg = guiMsg.content();
-            if (msg.getContents() instanceof TranslatableContents tc
-                    && tc.getKey().contains("commands.message.display.incoming")) {
-                pmSenderName = ((MutableComponent)tc.getArgs()[0]).getString();
-                break;
-            }
-        }
+        String pmSenderName = ChatIndex.getPmSender();
         if (pmSenderName == null) {
-            CommandKeys.LOG.warn("PmSenderName placeholder failed: No message found: Checked " + i);
+            CommandKeys.LOG.warn("PmSenderName placeholder failed: No message found");
             return fault();
         }
         return pmSenderName;
     }
 
-    // Player position
-
-    private static BlockPos updatePlayerBlockPos() {
-        if (playerBlockPos == null)
-            playerBlockPos = Minecraft.getInstance().player.blockPosition();
-        return playerBlockPos;
-    }
-
-    private static BlockPos updateLookBlockPos() {
-        // Note: ProjectileUtil.getEntityHitResult for entities
-        if (lookBlockPos == null) {
-            Minecraft mc = Minecraft.getInstance();
-            // Distance is arbitrary but will do for now
-            HitResult result = mc.player.pick(Math.max(384, 
-                    (mc.levelRenderer.getLastViewDistance() + 1D) * 16), 0.0F, false);
-            if (result.getType().equals(HitResult.Type.BLOCK)) {
-                lookBlockPos = ((BlockHitResult)result).getBlockPos();
-            }
-        }
-        return lookBlockPos;
-    }
-
-    private static Vec3 updateLookAngle() {
-        if (lookAngle == null)
-            lookAngle = Minecraft.getInstance().player.getLookAngle();
-        return lookAngle;
-    }
-
-    private static String getPlayerBlockPos(String[] args) {
-        if (updatePlayerBlockPos() == null || updateLookAngle() == null) return fault();
-        int offset = Integer.parseInt(args[1]);
-        Vec3 playerPos = playerBlockPos.getBottomCenter();
-        if (offset != 0) playerPos = offsetCardinalDirection(
-                playerPos, lookAngle, args[0], offset);
-        return String.format("%d %d %d", Mth.floor(playerPos.x),
-                Mth.floor(playerPos.y), Mth.floor(playerPos.z));
-    }
-
-    private static String getPlayerBlockX(String[] offset) {
-        if (updatePlayerBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(playerBlockPos.getX()) + Integer.parseInt(offset[0]));
-    }
-
-    private static String getPlayerBlockY(String[] offset) {
-        if (updatePlayerBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(playerBlockPos.getY()) + Integer.parseInt(offset[0]));
-    }
-
-    private static String getPlayerBlockZ(String[] offset) {
-        if (updatePlayerBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(playerBlockPos.getZ()) + Integer.parseInt(offset[0]));
-    }
-
-    private static String getLookBlockPos(String[] args) {
-        if (updateLookBlockPos() == null || updateLookAngle() == null) return fault();
-        int offset = Integer.parseInt(args[1]);
-        Vec3 playerPos = lookBlockPos.getBottomCenter();
-        if (offset != 0) playerPos = offsetCardinalDirection(
-                playerPos, lookAngle, args[0], offset);
-        return String.format("%d %d %d", Mth.floor(playerPos.x),
-                Mth.floor(playerPos.y), Mth.floor(playerPos.z));
-    }
-
-    private static String getLookBlockX(String[] offset) {
-        if (updateLookBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(lookBlockPos.getX()) + Integer.parseInt(offset[0]));
-    }
-
-    private static String getLookBlockY(String[] offset) {
-        if (updateLookBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(lookBlockPos.getY()) + Integer.parseInt(offset[0]));
-    }
-
-    private static String getLookBlockZ(String[] offset) {
-        if (updateLookBlockPos() == null) return fault();
-        return String.valueOf(Mth.floor(lookBlockPos.getZ()) + Integer.parseInt(offset[0]));
-    }
-
     // Util
 
     private static Vec3 offsetCardinalDirection(
-            Vec3 pos, Vec3 facingAngle, String offsetDir, int offset) {
+            Vec3 pos, Vec3 facingAngle, char offsetDir, int offset) {
         if (Math.abs(facingAngle.x) >= Math.abs(facingAngle.z)) {
             if (facingAngle.x >= 0) { // East
                 return switch(offsetDir) {
-                    case "F" -> new Vec3(pos.x + offset, pos.y, pos.z);
-                    case "B" -> new Vec3(pos.x - offset, pos.y, pos.z);
-                    case "L" -> new Vec3(pos.x, pos.y, pos.z - offset);
-                    case "R" -> new Vec3(pos.x, pos.y, pos.z + offset);
+                    case 'F' -> new Vec3(pos.x + offset, pos.y, pos.z);
+                    case 'B' -> new Vec3(pos.x - offset, pos.y, pos.z);
+                    case 'L' -> new Vec3(pos.x, pos.y, pos.z - offset);
+                    case 'R' -> new Vec3(pos.x, pos.y, pos.z + offset);
                     default -> throw new IllegalArgumentException("Disallowed value " + offsetDir);
                 };
             } else {
                 return switch(offsetDir) { // West
-                    case "F" -> new Vec3(pos.x - offset, pos.y, pos.z);
-                    case "B" -> new Vec3(pos.x + offset, pos.y, pos.z);
-                    case "L" -> new Vec3(pos.x, pos.y, pos.z + offset);
-                    case "R" -> new Vec3(pos.x, pos.y, pos.z - offset);
+                    case 'F' -> new Vec3(pos.x - offset, pos.y, pos.z);
+                    case 'B' -> new Vec3(pos.x + offset, pos.y, pos.z);
+                    case 'L' -> new Vec3(pos.x, pos.y, pos.z + offset);
+                    case 'R' -> new Vec3(pos.x, pos.y, pos.z - offset);
                     default -> throw new IllegalArgumentException("Disallowed value " + offsetDir);
                 };
             }
         } else {
             if (facingAngle.z >= 0) {
                 return switch(offsetDir) { // South
-                    case "F" -> new Vec3(pos.x, pos.y, pos.z + offset);
-                    case "B" -> new Vec3(pos.x, pos.y, pos.z - offset);
-                    case "L" -> new Vec3(pos.x + offset, pos.y, pos.z);
-                    case "R" -> new Vec3(pos.x - offset, pos.y, pos.z);
+                    case 'F' -> new Vec3(pos.x, pos.y, pos.z + offset);
+                    case 'B' -> new Vec3(pos.x, pos.y, pos.z - offset);
+                    case 'L' -> new Vec3(pos.x + offset, pos.y, pos.z);
+                    case 'R' -> new Vec3(pos.x - offset, pos.y, pos.z);
                     default -> throw new IllegalArgumentException("Disallowed value " + offsetDir);
                 };
             } else {
                 return switch(offsetDir) { // North
-                    case "F" -> new Vec3(pos.x, pos.y, pos.z - offset);
-                    case "B" -> new Vec3(pos.x, pos.y, pos.z + offset);
-                    case "L" -> new Vec3(pos.x - offset, pos.y, pos.z);
-                    case "R" -> new Vec3(pos.x + offset, pos.y, pos.z);
+                    case 'F' -> new Vec3(pos.x, pos.y, pos.z - offset);
+                    case 'B' -> new Vec3(pos.x, pos.y, pos.z + offset);
+                    case 'L' -> new Vec3(pos.x - offset, pos.y, pos.z);
+                    case 'R' -> new Vec3(pos.x + offset, pos.y, pos.z);
                     default -> throw new IllegalArgumentException("Disallowed value " + offsetDir);
                 };
             }
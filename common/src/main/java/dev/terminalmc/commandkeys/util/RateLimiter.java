@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.config.Config;
+
+/**
+ * Limits macro activations to {@link Config#getRatelimitCount()} activations
+ * in {@link Config#getRatelimitTicks()} ticks.
+ *
+ * <p>In {@link Config.RatelimitMode#WINDOW} mode, the timestamps of the most
+ * recent activations are kept in a fixed-capacity ring buffer, and an
+ * activation is allowed if the oldest of them has left the window.</p>
+ *
+ * <p>In {@link Config.RatelimitMode#REFILL} mode, activations draw from a
+ * token bucket which refills continuously, allowing a burst of up to the full
+ * count followed by a steady rate, similar to server-side chat throttling.
+ * Tokens are stored in units of {@code 1/ticks} to avoid fractions.</p>
+ *
+ * <p>Both modes are allocation-free, and ticking is a single increment.</p>
+ */
+public class RateLimiter {
+    private long currentTick = 0;
+    private int limit = 0;
+    private int window = 0;
+
+    // Sliding window
+    private long[] times = new long[0];
+    private int oldest = 0;
+    private int size = 0;
+
+    // Token bucket
+    private long tokens = 0;
+    private long lastRefill = 0;
+
+    public void tick() {
+        currentTick++;
+    }
+
+    /**
+     * Forgets all recorded activations, as on startup.
+     */
+    public void reset() {
+        currentTick = 0;
+        limit = 0;
+        window = 0;
+        times = new long[0];
+        oldest = 0;
+        size = 0;
+        tokens = 0;
+        lastRefill = 0;
+    }
+
+    /**
+     * @return {@code true} if an activation at this time would exceed the
+     * ratelimit, {@code false} otherwise.
+     */
+    public boolean isLimited() {
+        Config config = Config.get();
+        update(config);
+        return switch(config.getRatelimitMode()) {
+            case WINDOW -> size == limit && currentTick - times[oldest] <= window;
+            case REFILL -> tokens < window;
+        };
+    }
+
+    /**
+     * Records an activation at this time.
+     */
+    public void record() {
+        Config config = Config.get();
+        update(config);
+        switch(config.getRatelimitMode()) {
+            case WINDOW -> {
+                if (size < limit) {
+                    times[(oldest + size++) % limit] = currentTick;
+                } else {
+                    times[oldest] = currentTick;
+                    oldest = (oldest + 1) % limit;
+                }
+            }
+            // Debt is capped at one full bucket
+            case REFILL -> tokens = Math.max(tokens - window, -(long)limit * window);
+        }
+    }
+
+    /**
+     * Refills the token bucket, and resets all state if the ratelimit options
+     * have changed.
+     */
+    private void update(Config config) {
+        int limit = config.getRatelimitCount();
+        int window = config.getRatelimitTicks();
+        if (limit != this.limit || window != this.window) {
+            this.limit = limit;
+            this.window = window;
+            times = new long[limit];
+            oldest = 0;
+            size = 0;
+            tokens = (long)limit * window;
+            lastRefill = currentTick;
+        } else if (lastRefill != currentTick) {
+            // Two windows is always enough to refill from maximum debt
+            long elapsed = Math.min(currentTick - lastRefill, 2L * window);
+            tokens = Math.min((long)limit * window, tokens + elapsed * limit);
+            lastRefill = currentTick;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.config.Profile;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Paces outgoing chat messages and commands to a per-second budget.
+ *
+ * <p>The budget is the send rate of the active {@link Profile}, or if that is
+ * deferred, {@link Config#getSendRate()}. A rate of 0 is unlimited.</p>
+ *
+ * <p>Messages are sent in the order they are offered. While the budget is
+ * exhausted, messages are queued, and a command identical to one already in
+ * the queue is dropped. The queue is limited to {@link SendQueue#MAX_SIZE}
+ * messages, beyond which new messages are dropped, e.g. when a macro repeats
+ * faster than the send rate. The budget is a token bucket refilled every tick,
+ * allowing a burst of up to one second's worth of messages. Tokens are stored
+ * in units of {@code 1/20} to avoid fractions.</p>
+ */
+public class SendQueue {
+    private static final int TICKS_PER_SECOND = 20;
+    public static final int MAX_SIZE = 256;
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Set<String> queuedCommands = new HashSet<>();
+    private int rate = 0;
+    private long tokens = 0;
+    private boolean overflowed = false;
+
+    /**
+     * @return the number of messages waiting to be sent.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Sends {@code message} now if the budget allows and no other message is
+     * waiting, otherwise queues it.
+     */
+    public void offer(String message, boolean addToHistory, boolean showHudMsg) {
+        offer(message, addToHistory, showHudMsg, 0);
+    }
+
+    /**
+     * @param pressed the time of the triggering key-press, from
+     *                {@link Metrics#start()}, recorded as
+     *                {@link Metrics#SEND_LATENCY} when the message is sent.
+     */
+    public void offer(String message, boolean addToHistory, boolean showHudMsg, long pressed) {
+        update();
+        if (queue.isEmpty() && (rate == 0 || tokens >= TICKS_PER_SECOND)) {
+            tokens -= TICKS_PER_SECOND;
+            CommandKeys.sendImmediately(message, addToHistory, showHudMsg);
+            Metrics.SEND_LATENCY.recordSince(pressed);
+            return;
+        }
+        if (queue.size() >= MAX_SIZE) {
+            if (!overflowed) {
+                overflowed = true;
+                CommandKeys.LOG.warn("Send queue is full, dropping messages until it empties");
+            }
+            return;
+        }
+        if (message.startsWith("/") && !queuedCommands.add(message)) return;
+        queue.add(new Pending(message, addToHistory, showHudMsg, pressed));
+    }
+
+    /**
+     * Refills the budget, and sends as many queued messages as it allows.
+     * Should be called once per tick while connected.
+     */
+    public void tick() {
+        update();
+        if (rate != 0) {
+            tokens = Math.min(tokens + rate, (long)rate * TICKS_PER_SECOND);
+        }
+        while (!queue.isEmpty() && (rate == 0 || tokens >= TICKS_PER_SECOND)) {
+            tokens -= TICKS_PER_SECOND;
+            Pending pending = queue.poll();
+            queuedCommands.remove(pending.message);
+            CommandKeys.sendImmediately(pending.message, pending.addToHistory, pending.showHudMsg);
+            Metrics.SEND_LATENCY.recordSince(pending.pressed);
+        }
+        if (queue.isEmpty()) overflowed = false;
+    }
+
+    /**
+     * Removes all queued messages.
+     */
+    public void clear() {
+        queue.clear();
+        queuedCommands.clear();
+        overflowed = false;
+    }
+
+    /**
+     * Resets the budget if the effective rate has changed.
+     */
+    private void update() {
+        int rate = Config.get().activeProfile().getSendRate();
+        if (rate == Profile.SEND_RATE_DEFER) rate = Config.get().getSendRate();
+        if (rate != this.rate) {
+            this.rate = rate;
+            tokens = (long)rate * TICKS_PER_SECOND;
+        }
+    }
+
+    private record Pending(String message, boolean addToHistory, boolean showHudMsg, long pressed) {}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Selects indices at random in proportion to a fixed set of weights, using
+ * Walker's alias method so that each selection takes constant time regardless
+ * of the number of weights.
+ *
+ * <p>Optionally, the most recently selected indices can be excluded from
+ * selection. Excluded indices are rejected and redrawn a bounded number of
+ * times, after which the selection falls back to a linear scan over the
+ * remaining indices.</p>
+ *
+ * <p>Instances are immutable apart from the selection history, and must be
+ * replaced when the weights change.</p>
+ */
+public class WeightedRandom {
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final RandomGenerator random;
+    private final int[] weights;
+    private final double[] prob;
+    private final int[] alias;
+
+    private final int[] history;
+    private final boolean[] recent;
+    private int historyStart = 0;
+    private int historySize = 0;
+
+    /**
+     * @param weights the positive weight of each index. Must not be empty.
+     * @param window the number of most recently selected indices to exclude
+     *               from selection, limited to one less than the number of
+     *               weights.
+     * @param random the source of randomness.
+     */
+    public WeightedRandom(int[] weights, int window, RandomGenerator random) {
+        int n = weights.length;
+        if (n == 0) throw new IllegalArgumentException("No weights");
+        this.random = random;
+        this.weights = weights.clone();
+        this.prob = new double[n];
+        this.alias = new int[n];
+        this.history = new int[Math.clamp(window, 0, n - 1)];
+        this.recent = new boolean[n];
+
+        long total = 0;
+        for (int weight : weights) {
+            if (weight <= 0) throw new IllegalArgumentException("Weight " + weight + " <= 0");
+            total += weight;
+        }
+
+        // Vose's method: pair each under-full column with an over-full one
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numSmall = 0;
+        int numLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (double)weights[i] * n / total;
+            if (scaled[i] < 1) small[numSmall++] = i;
+            else large[numLarge++] = i;
+        }
+        while (numSmall > 0 && numLarge > 0) {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+            prob[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if (scaled[l] < 1) small[numSmall++] = l;
+            else large[numLarge++] = l;
+        }
+        // Remaining columns are full, up to rounding error
+        while (numLarge > 0) prob[large[--numLarge]] = 1;
+        while (numSmall > 0) prob[small[--numSmall]] = 1;
+    }
+
+    /**
+     * @return the number of indices.
+     */
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * @return a random index, excluding those in the selection history.
+     */
+    public int next() {
+        int index = -1;
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            int candidate = sample();
+            if (!recent[candidate]) {
+                index = candidate;
+                break;
+            }
+        }
+        if (index == -1) index = scan();
+        remember(index);
+        return index;
+    }
+
+    private int sample() {
+        int column = random.nextInt(prob.length);
+        return random.nextDouble() < prob[column] ? column : alias[column];
+    }
+
+    /**
+     * Linear weighted selection over the indices not in the history, of which
+     * there is always at least one.
+     */
+    private int scan() {
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (!recent[i]) total += weights[i];
+        }
+        long target = random.nextLong(total);
+        int last = -1;
+        for (int i = 0; i < weights.length; i++) {
+            if (recent[i]) continue;
+            last = i;
+            target -= weights[i];
+            if (target < 0) break;
+        }
+        return last;
+    }
+
+    private void remember(int index) {
+        if (history.length == 0) return;
+        if (historySize == history.length) {
+            recent[history[historyStart]] = false;
+            history[historyStart] = index;
+            historyStart = (historyStart + 1) % history.length;
+        } else {
+            history[(historyStart + historySize++) % history.length] = index;
+        }
+        recent[index] = true;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigCacheTest {
+    @TempDir
+    private Path dir;
+    private Path file;
+    private Path cacheFile;
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+        Fixtures.reset();
+        file = dir.resolve("config.json");
+        cacheFile = dir.resolve("config.bin");
+        config = Fixtures.createConfig(2, 10, Macro.SendMode.CYCLE);
+        config.setBinaryCache(true);
+        ConfigWriter writer = new ConfigWriter(file, cacheFile, Config.GSON, (crc) -> {});
+        writer.submit(config);
+        writer.flush();
+    }
+
+    @Test
+    void fresh() {
+        Config cached = ConfigCache.read(cacheFile, file);
+        assertNotNull(cached);
+        assertEquals(config.getProfiles().size(), cached.getProfiles().size());
+    }
+
+    @Test
+    void missing() throws IOException {
+        Files.delete(cacheFile);
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+
+    @Test
+    void configModified() throws IOException {
+        FileTime mtime = Files.getLastModifiedTime(file);
+        String json = Files.readString(file);
+        // Same size and modification time, different content
+        Files.writeString(file, json.replace("\"chatSearchDepth\": 50", "\"chatSearchDepth\": 10"));
+        Files.setLastModifiedTime(file, mtime);
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+
+    @Test
+    void configTouched() throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+
+    @Test
+    void formatChanged() throws IOException {
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        // Format version follows the 4-byte magic
+        bytes[7]++;
+        Files.write(cacheFile, bytes);
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+
+    @Test
+    void corrupt() throws IOException {
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(cacheFile, bytes);
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+
+    @Test
+    void macrosJsonMatchesGson() throws IOException {
+        // Every field differs from its default, so that none can be omitted
+        // or swapped with another unnoticed
+        Macro macro = new Macro(true, true, true, false, Macro.ConflictStrategy.VETO,
+                Macro.SendMode.CYCLE, 3, 0, 2, false,
+                new Keybind(Fixtures.KEYS[0], Fixtures.LIMIT_KEY),
+                new Keybind(Fixtures.KEYS[1], Fixtures.KEYS[2]),
+                new ArrayList<>(List.of(new Message(false, "a,,b", 5, 7))));
+        List<Macro> macros = List.of(macro);
+        JsonElement expected = Config.GSON.toJsonTree(macros, 
+                new TypeToken<List<Macro>>() {}.getType());
+
+        StringWriter json = new StringWriter();
+        try (JsonWriter out = new JsonWriter(json)) {
+            ConfigCache.writeMacrosJson(ByteBuffer.wrap(ConfigCache.encodeMacros(macros)), out);
+        }
+        assertEquals(expected, JsonParser.parseString(json.toString()));
+    }
+
+    @Test
+    void truncated() throws IOException {
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(ConfigCache.read(cacheFile, file));
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigReaderTest {
+    private static final String LEGACY_CONFIG = """
+            {
+              "version": 2,
+              "profiles": [
+                {
+                  "version": 2,
+                  "name": "Singleplayer",
+                  "addresses": [],
+                  "addToHistory": "OFF",
+                  "showHudMessage": "DEFER",
+                  "macros": []
+                },
+                {
+                  "version": 2,
+                  "name": "Server",
+                  "addresses": ["mc.example.net"],
+                  "addToHistory": "DEFER",
+                  "showHudMessage": "ON",
+                  "macros": [
+                    {
+                      "conflictStrategy": "TWO",
+                      "sendStrategy": "ONE",
+                      "key": {"name": "key.keyboard.k"},
+                      "limitKey": {"name": "key.keyboard.unknown"},
+                      "messages": ["/home"]
+                    }
+                  ]
+                }
+              ],
+              "spDefault": 0,
+              "mpDefault": 1
+            }
+            """;
+
+    private static final String UNREADABLE_CONFIG = """
+            {
+              "version": 11,
+              "profiles": [
+                {
+                  "version": 6,
+                  "id": "00000000-0000-0000-0000-000000000001",
+                  "name": "Default",
+                  "links": [],
+                  "addToHistory": "OFF",
+                  "showHudMessage": "OFF",
+                  "resumeRepeating": "OFF",
+                  "useRatelimit": "ON",
+                  "sendRate": -1,
+                  "macros": []
+                },
+                {
+                  "version": 6,
+                  "id": "00000000-0000-0000-0000-000000000002",
+                  "name": "Broken",
+                  "links": [],
+                  "addToHistory": "OFF",
+                  "showHudMessage": "OFF",
+                  "resumeRepeating": "OFF",
+                  "useRatelimit": "ON",
+                  "sendRate": -1,
+                  "macros": [
+                    {
+                      "version": 6,
+                      "sendMode": "SEND",
+                      "messages": [
+                        {"version": 2, "enabled": true, "string": "/home", "delayTicks": 0, "weight": 1}
+                      ]
+                    }
+                  ]
+                }
+              ],
+              "spDefault": "00000000-0000-0000-0000-000000000001",
+              "mpDefault": "00000000-0000-0000-0000-000000000001",
+              "defaultConflictStrategy": "SUBMIT",
+              "defaultSendMode": "SEND",
+              "ratelimitCount": 4,
+              "ratelimitTicks": 20,
+              "ratelimitStrict": false,
+              "ratelimitSp": false,
+              "ratelimitMode": "WINDOW",
+              "sendRate": 0,
+              "chatSearchDepth": 50,
+              "lookDistance": 384,
+              "binaryCache": true
+            }
+            """;
+
+    @BeforeEach
+    void setUp() {
+        Fixtures.reset();
+    }
+
+    @Test
+    void messageWithoutWeight() {
+        Message message = Config.GSON.fromJson("""
+                {"version": 1, "enabled": true, "string": "hi", "delayTicks": 5}
+                """, Message.class);
+        assertEquals("hi", message.string);
+        assertEquals(5, message.delayTicks);
+        assertEquals(1, message.getWeight());
+    }
+
+    @Test
+    void messageWithInvalidWeight() {
+        assertNull(Config.GSON.fromJson("""
+                {"version": 2, "enabled": true, "string": "hi", "delayTicks": 0, "weight": 0}
+                """, Message.class));
+    }
+
+    @Test
+    void macroWithoutNoRepeatWindow() {
+        Macro macro = Config.GSON.fromJson("""
+                {
+                  "version": 5,
+                  "addToHistory": true,
+                  "showHudMessage": false,
+                  "resumeRepeating": false,
+                  "useRatelimit": true,
+                  "conflictStrategy": "SUBMIT",
+                  "sendMode": "RANDOM",
+                  "spaceTicks": 0,
+                  "keybind": {"version": 0, "keyName": "key.keyboard.r", "limitKeyName": "key.keyboard.unknown"},
+                  "altKeybind": {"version": 0, "keyName": "key.keyboard.unknown", "limitKeyName": "key.keyboard.unknown"},
+                  "messages": [
+                    {"version": 1, "enabled": true, "string": "a", "delayTicks": 0},
+                    {"version": 1, "enabled": true, "string": "b", "delayTicks": 0}
+                  ]
+                }
+                """, Macro.class);
+        assertEquals(Macro.SendMode.RANDOM, macro.getMode());
+        assertEquals(0, macro.getNoRepeatWindow());
+        assertEquals(2, macro.getMessages().size());
+        assertEquals(InputConstants.getKey("key.keyboard.r"), macro.getKeybind().getKey());
+    }
+
+    @Test
+    void macroWithoutSplitMessages() {
+        String json = """
+                {
+                  "version": 6,
+                  "addToHistory": true,
+                  "showHudMessage": false,
+                  "resumeRepeating": false,
+                  "useRatelimit": true,
+                  "conflictStrategy": "SUBMIT",
+                  "sendMode": "%s",
+                  "spaceTicks": 0,
+                  "noRepeatWindow": 0,
+                  "keybind": {"version": 0, "keyName": "key.keyboard.r", "limitKeyName": "key.keyboard.unknown"},
+                  "altKeybind": {"version": 0, "keyName": "key.keyboard.unknown", "limitKeyName": "key.keyboard.unknown"},
+                  "messages": [
+                    {"version": 1, "enabled": true, "string": "a,,b", "delayTicks": 0}
+                  ]
+                }
+                """;
+        Macro send = Config.GSON.fromJson(json.formatted("SEND"), Macro.class);
+        assertFalse(send.getSplitMessages());
+        Macro cycle = Config.GSON.fromJson(json.formatted("CYCLE"), Macro.class);
+        assertTrue(cycle.getSplitMessages());
+    }
+
+    @Test
+    void legacyConfig() {
+        Config config = Config.GSON.fromJson(LEGACY_CONFIG, Config.class);
+        List<Profile> profiles = config.getProfiles();
+        assertEquals(2, profiles.size());
+        assertSame(profiles.get(0), config.getSpDefault());
+        assertSame(profiles.get(1), config.getMpDefault());
+        assertEquals(4, config.getRatelimitCount());
+        assertEquals(20, config.getRatelimitTicks());
+        assertEquals(Macro.SendMode.SEND, config.getDefaultSendMode());
+
+        Profile profile = profiles.get(1);
+        assertEquals("Server", profile.getDisplayName());
+        assertEquals(List.of("mc.example.net"), profile.getLinks());
+        assertEquals(Profile.Control.ON, profile.getShowHudMessage());
+        assertEquals(Profile.SEND_RATE_DEFER, profile.getSendRate());
+
+        profile.materialize();
+        Macro macro = profile.getMacros().getFirst();
+        assertEquals(Macro.ConflictStrategy.VETO, macro.getStrategy());
+        assertEquals(Macro.SendMode.TYPE, macro.getMode());
+        assertEquals(InputConstants.getKey("key.keyboard.k"), macro.getKeybind().getKey());
+        assertEquals(InputConstants.UNKNOWN, macro.getKeybind().getLimitKey());
+        assertEquals("/home", macro.getMessages().getFirst().string);
+    }
+
+    @Test
+    void roundTripViaCache() {
+        Config config = Fixtures.createConfig(5, 100, Macro.SendMode.RANDOM);
+        config.getProfiles().get(2).getMacros().get(7).setNoRepeatWindow(2);
+        config.getProfiles().get(2).getMacros().get(7).setWeight(1, 40);
+        Config.save();
+        Config.flush();
+        Path dir = Path.of(System.getProperty(CommandKeys.MOD_ID + ".configDir"));
+        Config loaded = ConfigCache.read(dir.resolve(CommandKeys.MOD_ID + ".bin"),
+                dir.resolve(CommandKeys.MOD_ID + ".json"));
+        assertNotNull(loaded);
+        assertEquivalent(config, loaded);
+    }
+
+    @Test
+    void roundTripViaJson() {
+        Config config = Fixtures.createConfig(5, 100, Macro.SendMode.REPEAT);
+        config.setBinaryCache(false);
+        Config.save();
+        Config.flush();
+        Path dir = Path.of(System.getProperty(CommandKeys.MOD_ID + ".configDir"));
+        assertFalse(Files.exists(dir.resolve(CommandKeys.MOD_ID + ".bin")));
+        assertEquivalent(config, Config.load());
+    }
+
+    @Test
+    void inactiveProfilesMaterializedOnUse() {
+        Config config = Fixtures.createConfig(2, 20, Macro.SendMode.SEND);
+        Config loaded = Config.GSON.fromJson(Config.GSON.toJson(config), Config.class);
+        Profile profile = loaded.getProfiles().get(2);
+        assertNotSame(profile, loaded.activeProfile());
+        assertNotNull(profile.macroBlob);
+        assertEquals(20, profile.getMacros().size());
+        assertNull(profile.macroBlob);
+        assertFalse(profile.isUnreadable());
+    }
+
+    @Test
+    void unreadableMacrosReplacedOnEdit() {
+        Config config = Config.GSON.fromJson(UNREADABLE_CONFIG, Config.class);
+        Profile profile = config.getProfiles().get(1);
+        assertTrue(profile.getMacros().isEmpty());
+        assertTrue(profile.isUnreadable());
+        Fixtures.addMacro(profile, Macro.SendMode.SEND, Fixtures.KEYS[0], "/spawn");
+        assertFalse(profile.isUnreadable());
+        assertNull(profile.macroBlob);
+        assertFalse(Config.GSON.toJson(profile).contains("/home"));
+    }
+
+    @Test
+    void snapshotWritesSameJson() {
+        Config config = Fixtures.createConfig(1, 20, Macro.SendMode.RANDOM);
+        Profile profile = config.activeProfile();
+        profile.getMacros().get(3).setWeight(0, 7);
+        assertEquals(Config.GSON.toJson(profile), Config.GSON.toJson(profile.snapshot()));
+    }
+
+    @Test
+    void snapshotSharesNoState() {
+        Config config = Fixtures.createConfig(1, 4, Macro.SendMode.SEND);
+        Profile profile = config.activeProfile();
+        Profile snapshot = profile.snapshot();
+        String json = Config.GSON.toJson(snapshot);
+        profile.getMacros().getFirst().setMessage(0, "changed");
+        profile.getMacros().get(1).setSplitMessages(false);
+        profile.setKey(profile.getMacros().get(2), profile.getMacros().get(2).getKeybind(),
+                Fixtures.LIMIT_KEY);
+        assertEquals(json, Config.GSON.toJson(snapshot));
+    }
+
+    @Test
+    void loadFromJsonOnlyWritesCache() throws IOException {
+        Fixtures.createConfig(2, 10, Macro.SendMode.CYCLE);
+        Config.flush();
+        Path dir = Path.of(System.getProperty(CommandKeys.MOD_ID + ".configDir"));
+        Path file = dir.resolve(CommandKeys.MOD_ID + ".json");
+        Path cacheFile = dir.resolve(CommandKeys.MOD_ID + ".bin");
+        // Formatted differently from the files written by the mod
+        String json = new Gson().toJson(JsonParser.parseString(Files.readString(file)));
+        Files.writeString(file, json);
+
+        Config.load();
+        Config.flush();
+        assertEquals(json, Files.readString(file));
+        Config cached = ConfigCache.read(cacheFile, file);
+        assertNotNull(cached);
+        // Macros are cached without being decoded
+        assertInstanceOf(MacroBlob.Json.class, cached.getProfiles().get(2).macroBlob);
+    }
+
+    @Test
+    void unreadableMacrosArePreserved() throws IOException {
+        Config.flush();
+        Path dir = Path.of(System.getProperty(CommandKeys.MOD_ID + ".configDir"));
+        Path file = dir.resolve(CommandKeys.MOD_ID + ".json");
+        Path backupFile = dir.resolve(CommandKeys.MOD_ID + ".unreadable.json");
+        Files.deleteIfExists(backupFile);
+        Files.writeString(file, UNREADABLE_CONFIG);
+
+        Config config = Config.load();
+        Profile profile = config.getProfiles().get(1);
+        profile.materialize();
+        assertTrue(profile.isUnreadable());
+        assertTrue(profile.getMacros().isEmpty());
+        assertEquals(UNREADABLE_CONFIG, Files.readString(backupFile));
+
+        // Saving writes the unreadable macros back unchanged
+        Files.writeString(file, Config.GSON.toJson(config));
+        Profile reloaded = Config.load().getProfiles().get(1);
+        reloaded.materialize();
+        assertTrue(reloaded.isUnreadable());
+        assertTrue(Files.readString(file).contains("/home"));
+    }
+
+    private static void assertEquivalent(Config expected, Config actual) {
+        assertEquals(expected.getProfiles().size(), actual.getProfiles().size());
+        assertEquals(expected.getSpDefault().getId(), actual.getSpDefault().getId());
+        assertEquals(expected.getMpDefault().getId(), actual.getMpDefault().getId());
+        for (int i = 0; i < expected.getProfiles().size(); i++) {
+            Profile profile = expected.getProfiles().get(i);
+            Profile other = actual.getProfiles().get(i);
+            assertEquals(profile.getId(), other.getId());
+            assertEquals(profile.getDisplayName(), other.getDisplayName());
+            assertEquals(profile.getLinks(), other.getLinks());
+            assertEquals(profile.getUseRatelimit(), other.getUseRatelimit());
+            assertEquals(profile.getSendRate(), other.getSendRate());
+            profile.materialize();
+            other.materialize();
+            assertEquals(profile.getMacros().size(), other.getMacros().size());
+            for (int j = 0; j < profile.getMacros().size(); j++) {
+                assertTrue(profile.getMacros().get(j).isEquivalent(other.getMacros().get(j)),
+                        "Macro " + j + " of " + profile.getDisplayName());
+            }
+        }
+    }
+}
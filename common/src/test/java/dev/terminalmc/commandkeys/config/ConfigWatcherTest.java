@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigWatcherTest {
+    @Test
+    void ownWritesIgnored(@TempDir Path dir) throws IOException {
+        Fixtures.install();
+        Path file = dir.resolve("config.json");
+        ConfigWatcher watcher = new ConfigWatcher(file);
+        ConfigWriter writer = new ConfigWriter(file, dir.resolve("config.bin"),
+                Config.GSON, watcher::ignore);
+        Config config = Fixtures.createConfig(1, 4, Macro.SendMode.SEND);
+        writer.submit(config);
+        writer.flush();
+        watcher.read();
+        assertNull(watcher.poll());
+
+        // External edit
+        Files.writeString(file, Files.readString(file).replace(
+                "\"chatSearchDepth\": 50", "\"chatSearchDepth\": 10"));
+        watcher.read();
+        ConfigWatcher.Change change = watcher.poll();
+        assertNotNull(change);
+        assertEquals(10, change.config().getChatSearchDepth());
+        // Decoding macros is left to the client thread
+        assertFalse(change.config().activeProfile().isMaterialized());
+        assertNull(watcher.poll());
+
+        // Unchanged content after the last read
+        watcher.read();
+        assertNull(watcher.poll());
+    }
+
+    @Test
+    void earlierOwnWriteIgnored(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("config.json");
+        ConfigWatcher watcher = new ConfigWatcher(file);
+        String first = "{\"version\": 11}";
+        String second = "{\"version\": 11, \"profiles\": []}";
+        watcher.ignore(crc(first));
+        watcher.ignore(crc(second));
+        // The second write has been reported, but has not replaced the file
+        Files.writeString(file, first);
+        watcher.read();
+        assertNull(watcher.poll());
+    }
+
+    private static long crc(String content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
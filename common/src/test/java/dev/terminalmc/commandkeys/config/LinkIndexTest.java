@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkIndexTest {
+    private final LinkIndex index = new LinkIndex();
+    private final Profile a = new Profile("a");
+    private final Profile b = new Profile("b");
+    private final Profile c = new Profile("c");
+
+    @Test
+    void exactBeatsWildcard() {
+        index.put("*.example.net", a);
+        index.put("mc.example.net", b);
+        assertSame(b, index.findServer("mc.example.net", 25565));
+        assertSame(a, index.findServer("play.mc.example.net", 25565));
+        assertSame(a, index.findServer("PLAY.Example.net.", 25565));
+        assertNull(index.findServer("example.net", 25565));
+    }
+
+    @Test
+    void mostSpecificWildcard() {
+        index.put("*.example.net", a);
+        index.put("*.eu.example.net", b);
+        assertSame(b, index.findServer("mc.eu.example.net", 25565));
+        assertSame(a, index.findServer("mc.us.example.net", 25565));
+    }
+
+    @Test
+    void portSpecific() {
+        index.put("*.example.net", a);
+        index.put("*.example.net:25566", b);
+        index.put("mc.example.net:25567", c);
+        assertSame(a, index.findServer("mc.example.net", 25565));
+        assertSame(b, index.findServer("mc.example.net", 25566));
+        assertSame(c, index.findServer("mc.example.net", 25567));
+    }
+
+    @Test
+    void cidrRanges() {
+        index.put("10.0.0.0/8", a);
+        index.put("10.1.0.0/16", b);
+        index.put("10.1.2.3", c);
+        assertSame(b, index.findServer("10.1.200.4", 25565));
+        assertSame(a, index.findServer("10.2.0.1", 25565));
+        assertSame(c, index.findServer("10.1.2.3", 25565));
+        assertNull(index.findServer("11.0.0.1", 25565));
+        assertTrue(LinkIndex.isPattern("0.0.0.0/0"));
+        assertFalse(LinkIndex.isPattern("10.0.0.0/33"));
+    }
+
+    @Test
+    void equivalentPatternsSurviveRemoval() {
+        index.put("10.0.0.1/24", a);
+        index.put("10.0.0.0/24", b);
+        index.put("*.Example.net", a);
+        index.put("*.example.net", b);
+        assertSame(a, index.findServer("10.0.0.7", 25565));
+        assertSame(a, index.findServer("mc.example.net", 25565));
+
+        index.remove("10.0.0.1/24", a);
+        index.remove("*.Example.net", a);
+        assertSame(b, index.findServer("10.0.0.7", 25565));
+        assertSame(b, index.findServer("mc.example.net", 25565));
+
+        index.remove("10.0.0.0/24", b);
+        index.remove("*.example.net", b);
+        assertNull(index.findServer("10.0.0.7", 25565));
+        assertNull(index.findServer("mc.example.net", 25565));
+    }
+
+    @Test
+    void changedOwner() {
+        index.put("*.example.net", a);
+        index.put("*.example.net", b);
+        assertSame(b, index.get("*.example.net"));
+        assertSame(b, index.findServer("mc.example.net", 25565));
+        index.remove("*.example.net", a);
+        assertSame(b, index.findServer("mc.example.net", 25565));
+    }
+}
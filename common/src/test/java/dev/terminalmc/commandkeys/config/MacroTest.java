@@ -0,0 +1,181 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.config;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.testing.FakeClient;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import dev.terminalmc.commandkeys.testing.TickDriver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MacroTest {
+    private static final InputConstants.Key KEY_A = Fixtures.key(InputConstants.KEY_A);
+    private static final InputConstants.Key KEY_B = Fixtures.key(InputConstants.KEY_B);
+
+    private FakeClient client;
+    private TickDriver driver;
+    private Profile profile;
+
+    @BeforeEach
+    void setUp() {
+        client = Fixtures.reset();
+        driver = new TickDriver(client);
+        profile = Config.get().activeProfile();
+        profile.setUseRatelimit(Profile.Control.OFF);
+    }
+
+    @Test
+    void sendUsesMessageDelays() {
+        Macro macro = Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_A, "a", "b", "c");
+        macro.getMessages().get(1).delayTicks = 5;
+        driver.press(KEY_A);
+        driver.run(10);
+        assertEquals(List.of(
+                new FakeClient.Sent(1, "a"),
+                new FakeClient.Sent(5, "b"),
+                new FakeClient.Sent(5, "c")), client.sent);
+    }
+
+    @Test
+    void sendUsesSpacing() {
+        Macro macro = Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_A, "a", "b", "c,,d");
+        macro.spaceTicks = 10;
+        driver.press(KEY_A);
+        driver.run(30);
+        assertEquals(List.of(
+                new FakeClient.Sent(1, "a"),
+                new FakeClient.Sent(10, "b"),
+                new FakeClient.Sent(20, "c"),
+                new FakeClient.Sent(20, "d")), client.sent);
+    }
+
+    @Test
+    void messagesSentInTriggerOrder() {
+        Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_A, "a1", "a2");
+        Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_B, "b1");
+        driver.press(KEY_B);
+        driver.press(KEY_A);
+        driver.run(1);
+        assertEquals(List.of("b1", "a1", "a2"), client.sentMessages());
+    }
+
+    @Test
+    void typeOpensChat() {
+        Fixtures.addMacro(profile, Macro.SendMode.TYPE, KEY_A, "/msg %myname% ");
+        assertEquals(1, driver.press(KEY_A));
+        assertEquals("/msg Player ", client.typed);
+        assertTrue(client.sent.isEmpty());
+    }
+
+    @Test
+    void cycleWraps() {
+        Fixtures.addMacro(profile, Macro.SendMode.CYCLE, KEY_A, "a", "b", "c");
+        for (int i = 0; i < 4; i++) driver.press(KEY_A);
+        List<String> sent = client.sentMessages();
+        assertEquals(3, new HashSet<>(sent.subList(0, 3)).size());
+        assertEquals(sent.get(0), sent.get(3));
+    }
+
+    @Test
+    void repeatUntilPressedAgain() {
+        Macro macro = Fixtures.addMacro(profile, Macro.SendMode.REPEAT, KEY_A, "a", "b");
+        macro.spaceTicks = 100;
+        macro.getMessages().get(1).delayTicks = 10;
+        driver.press(KEY_A);
+        driver.run(Duration.ofHours(3));
+        assertEquals(2160, client.sentMessages().stream().filter("a"::equals).count());
+        assertEquals(2160, client.sentMessages().stream().filter("b"::equals).count());
+        assertTrue(macro.hasRepeating());
+
+        driver.press(KEY_A);
+        assertFalse(macro.hasRepeating());
+        int count = client.sent.size();
+        driver.run(1000);
+        assertEquals(count, client.sent.size());
+    }
+
+    @Test
+    void manyRepeatingMacros() {
+        client.record = false;
+        long expected = 0;
+        long ticks = Duration.ofHours(1).toSeconds() * TickDriver.TICKS_PER_SECOND;
+        for (int i = 0; i < 40; i++) {
+            Macro macro = Fixtures.addMacro(profile, Macro.SendMode.REPEAT, Fixtures.KEYS[i], "m" + i);
+            macro.spaceTicks = 20 + i;
+            expected += (ticks - 1) / macro.spaceTicks + 1;
+        }
+        for (int i = 0; i < 40; i++) driver.press(Fixtures.KEYS[i]);
+        driver.run(ticks);
+        assertEquals(expected, client.sentCount);
+        assertEquals(40, CommandKeys.SCHEDULER.size());
+    }
+
+    @Test
+    void pausePostponesMessages() {
+        Macro macro = Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_A, "a", "b");
+        macro.spaceTicks = 5;
+        driver.press(KEY_A);
+        driver.run(1);
+        client.playing = false;
+        driver.run(100);
+        client.playing = true;
+        driver.run(4);
+        assertEquals(List.of(
+                new FakeClient.Sent(1, "a"),
+                new FakeClient.Sent(105, "b")), client.sent);
+    }
+
+    @Test
+    void disconnectClearsSendQueue() {
+        Config.get().setSendRate(1);
+        Fixtures.addMacro(profile, Macro.SendMode.SEND, KEY_A, "a", "b", "c");
+        driver.press(KEY_A);
+        driver.run(1);
+        assertEquals(2, CommandKeys.SEND_QUEUE.size());
+        client.hasPlayer = false;
+        driver.run(1);
+        assertEquals(0, CommandKeys.SEND_QUEUE.size());
+        assertEquals(List.of("a"), client.sentMessages());
+    }
+
+    @Test
+    void ratelimitBlocksActivations() {
+        // Not a keyboard key, so the display name does not need GLFW
+        InputConstants.Key key = InputConstants.Type.MOUSE.getOrCreate(InputConstants.MOUSE_BUTTON_MIDDLE);
+        Fixtures.addMacro(profile, Macro.SendMode.CYCLE, key, "a");
+        profile.setUseRatelimit(Profile.Control.ON);
+
+        for (int i = 0; i < 6; i++) driver.press(key);
+        assertEquals(4, client.sent.size());
+        assertEquals(2, client.chat.size());
+
+        driver.run(20);
+        driver.press(key);
+        assertEquals(4, client.sent.size());
+        driver.run(1);
+        driver.press(key);
+        assertEquals(5, client.sent.size());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import com.sun.management.ThreadMXBean;
+import dev.terminalmc.commandkeys.testing.FakeClient;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MessageSchedulerTest {
+    private FakeClient client;
+    private MessageScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        client = Fixtures.reset();
+        scheduler = new MessageScheduler();
+    }
+
+    private void schedule(MessageScheduler.Group group, int delay, int repeatDelay, String message) {
+        scheduler.schedule(group, delay, repeatDelay, PlaceholderUtil.compile(message), false, false, 0);
+    }
+
+    private void run(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            client.tick++;
+            scheduler.tick();
+        }
+    }
+
+    @Test
+    void delayIsAtLeastOneTick() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        schedule(group, 0, -1, "a");
+        schedule(group, 3, -1, "b");
+        run(5);
+        assertEquals(List.of(new FakeClient.Sent(1, "a"), new FakeClient.Sent(3, "b")), client.sent);
+        assertTrue(group.isEmpty());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void sameTickFiresInScheduleOrder() {
+        MessageScheduler.Group first = new MessageScheduler.Group();
+        MessageScheduler.Group second = new MessageScheduler.Group();
+        schedule(first, 2, -1, "a");
+        schedule(second, 2, -1, "b");
+        schedule(first, 2, -1, "c");
+        run(2);
+        assertEquals(List.of("a", "b", "c"), client.sentMessages());
+    }
+
+    @Test
+    void delaysBeyondWheelSize() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        schedule(group, 1000, -1, "a");
+        run(999);
+        assertTrue(client.sent.isEmpty());
+        run(1);
+        assertEquals(List.of(new FakeClient.Sent(1000, "a")), client.sent);
+    }
+
+    @Test
+    void repeatingUntilCancelled() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        schedule(group, 1, 5, "a");
+        schedule(group, 20, -1, "b");
+        assertTrue(group.hasRepeating());
+        run(11);
+        assertEquals(List.of("a", "a", "a"), client.sentMessages());
+
+        scheduler.cancel(group, true);
+        assertFalse(group.hasRepeating());
+        assertFalse(group.isEmpty());
+        run(20);
+        assertEquals(List.of("a", "a", "a", "b"), client.sentMessages());
+        assertTrue(group.isEmpty());
+    }
+
+    @Test
+    void suspendRetainsRemainingDelay() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        schedule(group, 10, -1, "a");
+        run(4);
+        scheduler.suspend(List.of(group));
+        assertEquals(0, scheduler.size());
+        run(100);
+        assertTrue(client.sent.isEmpty());
+
+        scheduler.resume(List.of(group));
+        run(5);
+        assertTrue(client.sent.isEmpty());
+        run(1);
+        assertEquals(List.of(new FakeClient.Sent(110, "a")), client.sent);
+    }
+
+    @Test
+    void clearRemovesSuspended() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        schedule(group, 10, 5, "a");
+        scheduler.suspend(List.of(group));
+        schedule(group, 3, -1, "b");
+        scheduler.clear();
+        assertTrue(group.isEmpty());
+        assertFalse(group.hasRepeating());
+
+        scheduler.resume(List.of(group));
+        run(100);
+        assertTrue(client.sent.isEmpty());
+    }
+
+    @Test
+    void clearRemovesAll() {
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        for (int i = 0; i < 2000; i++) schedule(group, i, 7, "a");
+        assertEquals(2000, scheduler.size());
+        scheduler.clear();
+        assertEquals(0, scheduler.size());
+        assertTrue(group.isEmpty());
+        run(300);
+        assertTrue(client.sent.isEmpty());
+    }
+
+    @Test
+    void warmCyclesDoNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled());
+        MessageScheduler.Group group = new MessageScheduler.Group();
+        PlaceholderUtil.Template message = PlaceholderUtil.compile("a");
+        for (int i = 0; i < 10_000; i++) cycle(group, message);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) cycle(group, message);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+        assertTrue(client.sent.isEmpty());
+    }
+
+    /**
+     * Schedules a burst of entries as a macro would, ticks, then cancels them
+     * before they are due.
+     */
+    private void cycle(MessageScheduler.Group group, PlaceholderUtil.Template message) {
+        for (int i = 0; i < 8; i++) scheduler.schedule(group, 100 + i, 20, message, false, false, 0);
+        client.tick++;
+        scheduler.tick();
+        scheduler.cancel(group, false);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    @BeforeEach
+    void setUp() {
+        Metrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    void disabledRecordsNothing() {
+        Metrics.setEnabled(false);
+        assertEquals(0, Metrics.start());
+        Metrics.TICK.record(100);
+        Metrics.RATELIMITED.increment();
+        Metrics.setEnabled(true);
+        assertEquals(0, Metrics.TICK.snapshot().count());
+        assertEquals(0, Metrics.RATELIMITED.get());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        for (int i = 0; i < 8; i++) Metrics.PENDING.record(i);
+        Metrics.Histogram.Snapshot s = Metrics.PENDING.snapshot();
+        assertEquals(8, s.count());
+        assertEquals(3.5, s.mean());
+        assertEquals(3, s.p50());
+        assertEquals(7, s.p99());
+        assertEquals(7, s.max());
+    }
+
+    @Test
+    void percentilesWithinBucketWidth() {
+        for (long i = 1; i <= 100_000; i++) Metrics.KEY_HANDLER.record(i);
+        Metrics.Histogram.Snapshot s = Metrics.KEY_HANDLER.snapshot();
+        assertEquals(100_000, s.count());
+        assertEquals(100_000, s.max());
+        assertEquals(50_000, s.p50(), 50_000 / 8.0);
+        assertEquals(99_000, s.p99(), 99_000 / 8.0);
+        assertTrue(s.p50() >= 50_000);
+        assertTrue(s.p99() >= 99_000);
+    }
+
+    @Test
+    void largeValues() {
+        Metrics.CONFIG_WRITE.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Metrics.CONFIG_WRITE.snapshot().p50());
+    }
+
+    @Test
+    void enablingClears() {
+        Metrics.RATELIMITED.increment();
+        Metrics.setEnabled(false);
+        Metrics.setEnabled(true);
+        assertEquals(0, Metrics.RATELIMITED.get());
+    }
+
+    @Test
+    void export(@TempDir Path dir) throws IOException {
+        Metrics.TICK.record(1500);
+        Metrics.RATELIMITED.increment();
+        List<String> lines = Files.readAllLines(Metrics.export(dir));
+        assertEquals("metric,unit,count,mean,p50,p90,p99,max", lines.getFirst());
+        assertEquals(Metrics.ALL.size() + 1, lines.size());
+        assertTrue(lines.contains("tick,ns,1,1500.0,1535,1535,1535,1500"));
+        assertTrue(lines.contains("ratelimited,count,1,,,,,"));
+    }
+}
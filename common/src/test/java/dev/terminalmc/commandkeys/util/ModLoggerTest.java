@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModLoggerTest {
+    private final ModLogger logger = new ModLogger("ModLoggerTest");
+
+    @Test
+    void supplierOnlyCalledIfEnabled() {
+        AtomicInteger calls = new AtomicInteger();
+        logger.trace(() -> "trace " + calls.incrementAndGet());
+        assertEquals(0, calls.get());
+        logger.error(() -> "error " + calls.incrementAndGet());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void parametersOnlyFormattedIfEnabled() {
+        AtomicInteger calls = new AtomicInteger();
+        Object param = new Object() {
+            @Override
+            public String toString() {
+                return "param " + calls.incrementAndGet();
+            }
+        };
+        logger.trace("Message {}", param);
+        assertEquals(0, calls.get());
+        logger.error("Message {}", param);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void throwableParameter() {
+        assertDoesNotThrow(() -> {
+            logger.error("Failed", new RuntimeException("test"));
+            logger.error("Failed: {}", new RuntimeException("test"));
+            logger.debug("Debug {} {} {}", 1, 2, 3);
+        });
+    }
+
+    @Test
+    void debugPatternIncludesOwner() {
+        ModLogger owned = logger.forClass(String.class);
+        assertEquals("[ModLoggerTest/String]: Message {}", owned.debugPattern("Message {}"));
+        assertEquals("[ModLoggerTest]: Message {}", logger.debugPattern("Message {}"));
+        assertSame(owned.debugPattern("Message {}"), owned.debugPattern("Message {}"));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import com.mojang.datafixers.util.Pair;
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.testing.FakeClient;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import net.minecraft.network.chat.Component;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderUtilTest {
+    private FakeClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = Fixtures.reset();
+        PlaceholderContext.tick();
+    }
+
+    private static void assertRenders(String expected, int faults, String message) {
+        Pair<String,Integer> result = PlaceholderUtil.compile(message).render();
+        assertEquals(expected, result.getFirst());
+        assertEquals(faults, result.getSecond());
+    }
+
+    @Test
+    void literal() {
+        assertRenders("Hello 100% world", 0, "Hello 100% world");
+        assertRenders("%unknown%", 0, "%unknown%");
+    }
+
+    @Test
+    void playerName() {
+        assertRenders("Player is AFK", 0, "%myname% is AFK");
+    }
+
+    @Test
+    void playerPosition() {
+        assertRenders("/tp 120 64 -340", 0, "/tp %pos%");
+        assertRenders("120 65 -342", 0, "%x% %y+1% %z-2%");
+    }
+
+    @Test
+    void lookPosition() {
+        assertRenders("124 63 -338", 0, "%lpos%");
+        // Facing east, so forward is +x and left is -z
+        assertRenders("126 63 -338", 0, "%lposF2%");
+        assertRenders("124 63 -341", 0, "%lposL3%");
+    }
+
+    @Test
+    void lookDistance() {
+        assertRenders("124 63 -338", 0, "%lpos%");
+        assertEquals(384, client.pickDistance);
+        // Automatic distance covers the render distance
+        client.viewDistance = 32;
+        PlaceholderContext.tick();
+        assertRenders("124 63 -338", 0, "%lpos%");
+        assertEquals(33 * 16, client.pickDistance);
+        Config.get().setLookDistance(100);
+        PlaceholderContext.tick();
+        assertRenders("124 63 -338", 0, "%lpos%");
+        assertEquals(100, client.pickDistance);
+    }
+
+    @Test
+    void lookPositionMiss() {
+        client.lookPos = null;
+        PlaceholderContext.tick();
+        assertRenders("? ?", 2, "%lpos% %lx%");
+    }
+
+    @Test
+    void clipboard() {
+        assertRenders("?", 1, "%clipboard%");
+        client.clipboard = "abc";
+        assertRenders("abc", 0, "%clipboard%");
+        assertRenders("abc", 0, "%clipboard#^a%");
+        assertRenders("?", 1, "%clipboard#^z%");
+    }
+
+    @Test
+    void recentChat() {
+        assertRenders("Thanks ?!", 1, "Thanks %#<(\\w+)> %!");
+        ChatIndex.add(Component.literal("<Alex> hi there"));
+        ChatIndex.add(Component.literal("Server restarting"));
+        assertRenders("Thanks Alex!", 0, "Thanks %#<(\\w+)> %!");
+    }
+
+    @Test
+    void recentChatDepth() {
+        ChatIndex.add(Component.literal("<Alex> hi there"));
+        ChatIndex.add(Component.literal("Server restarting"));
+        Config.get().setChatSearchDepth(1);
+        assertEquals(1, ChatIndex.size());
+        assertRenders("Thanks ?!", 1, "Thanks %#<(\\w+)> %!");
+    }
+
+    @Test
+    void invalidRegex() {
+        PlaceholderUtil.Template template = PlaceholderUtil.compile("%#(%");
+        assertNotNull(template.getError());
+        assertEquals(1, template.render().getSecond());
+    }
+
+    @Test
+    void validateDoesNotCache() {
+        assertNotNull(PlaceholderUtil.validate("%#[%"));
+        assertNull(PlaceholderUtil.validate("%#<(\\w+)> edited%"));
+        assertFalse(PlaceholderUtil.isCached("<(\\w+)> edited"));
+        PlaceholderUtil.compile("%#<(\\w+)> edited%");
+        assertTrue(PlaceholderUtil.isCached("<(\\w+)> edited"));
+    }
+
+    @Test
+    void lastCommand() {
+        assertRenders("?", 1, "%lastcmd%");
+        client.addRecentChat("/home");
+        assertRenders("/home", 0, "%lastcmd%");
+    }
+}
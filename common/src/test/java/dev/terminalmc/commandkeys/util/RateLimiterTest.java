@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    private RateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        Fixtures.reset();
+        Config.get().setRatelimitCount(3);
+        Config.get().setRatelimitTicks(10);
+        limiter = new RateLimiter();
+    }
+
+    private void run(int ticks) {
+        for (int i = 0; i < ticks; i++) limiter.tick();
+    }
+
+    @Test
+    void windowAllowsLimitPerWindow() {
+        Config.get().setRatelimitMode(Config.RatelimitMode.WINDOW);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(limiter.isLimited());
+            limiter.record();
+        }
+        assertTrue(limiter.isLimited());
+        run(10);
+        assertTrue(limiter.isLimited());
+        run(1);
+        assertFalse(limiter.isLimited());
+    }
+
+    @Test
+    void windowSlides() {
+        Config.get().setRatelimitMode(Config.RatelimitMode.WINDOW);
+        limiter.record();
+        run(5);
+        limiter.record();
+        limiter.record();
+        run(6);
+        // First activation has left the window
+        assertFalse(limiter.isLimited());
+        limiter.record();
+        assertTrue(limiter.isLimited());
+        run(5);
+        assertFalse(limiter.isLimited());
+    }
+
+    @Test
+    void refillAllowsBurstThenSteadyRate() {
+        Config.get().setRatelimitMode(Config.RatelimitMode.REFILL);
+        for (int i = 0; i < 3; i++) {
+            assertFalse(limiter.isLimited());
+            limiter.record();
+        }
+        assertTrue(limiter.isLimited());
+        // 3 activations per 10 ticks refills one every 3.33 ticks
+        run(3);
+        assertTrue(limiter.isLimited());
+        run(1);
+        assertFalse(limiter.isLimited());
+    }
+
+    @Test
+    void optionChangeResets() {
+        Config.get().setRatelimitMode(Config.RatelimitMode.WINDOW);
+        for (int i = 0; i < 3; i++) limiter.record();
+        assertTrue(limiter.isLimited());
+        Config.get().setRatelimitCount(4);
+        assertFalse(limiter.isLimited());
+    }
+
+    @Test
+    void resetForgetsActivations() {
+        Config.get().setRatelimitMode(Config.RatelimitMode.WINDOW);
+        for (int i = 0; i < 3; i++) limiter.record();
+        assertTrue(limiter.isLimited());
+        limiter.reset();
+        assertFalse(limiter.isLimited());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.testing.FakeClient;
+import dev.terminalmc.commandkeys.testing.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendQueueTest {
+    private FakeClient client;
+    private SendQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        client = Fixtures.reset();
+        queue = new SendQueue();
+    }
+
+    private void run(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            client.tick++;
+            queue.tick();
+        }
+    }
+
+    @Test
+    void unlimitedSendsImmediately() {
+        for (int i = 0; i < 100; i++) queue.offer("m" + i, false, false);
+        assertEquals(100, client.sent.size());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void burstThenSteadyRate() {
+        Config.get().setSendRate(2);
+        for (int i = 0; i < 5; i++) queue.offer("m" + i, false, false);
+        assertEquals(3, queue.size());
+        run(30);
+        assertEquals(List.of(
+                new FakeClient.Sent(0, "m0"),
+                new FakeClient.Sent(0, "m1"),
+                new FakeClient.Sent(10, "m2"),
+                new FakeClient.Sent(20, "m3"),
+                new FakeClient.Sent(30, "m4")), client.sent);
+    }
+
+    @Test
+    void overflowDropped() {
+        Config.get().setSendRate(1);
+        for (int i = 0; i < SendQueue.MAX_SIZE + 10; i++) queue.offer("m" + i, false, false);
+        assertEquals(SendQueue.MAX_SIZE, queue.size());
+        run(20);
+        assertEquals(List.of("m0", "m1"), client.sentMessages());
+        assertEquals(SendQueue.MAX_SIZE - 1, queue.size());
+    }
+
+    @Test
+    void duplicateQueuedCommandsDropped() {
+        Config.get().setSendRate(1);
+        queue.offer("hi", false, false);
+        queue.offer("/a", false, false);
+        queue.offer("/b", false, false);
+        queue.offer("/a", false, false);
+        queue.offer("hi", false, false);
+        run(60);
+        assertEquals(List.of(
+                new FakeClient.Sent(0, "hi"),
+                new FakeClient.Sent(20, "/a"),
+                new FakeClient.Sent(40, "/b"),
+                new FakeClient.Sent(60, "hi")), client.sent);
+    }
+
+    @Test
+    void profileRateOverridesGlobal() {
+        Config.get().setSendRate(1);
+        Config.get().activeProfile().setSendRate(4);
+        for (int i = 0; i < 6; i++) queue.offer("m" + i, false, false);
+        assertEquals(2, queue.size());
+        run(10);
+        assertEquals(List.of(5L, 10L), client.sent.subList(4, 6).stream()
+                .map(FakeClient.Sent::tick).toList());
+    }
+
+    @Test
+    void sendLatencyRecordedWhenSent() {
+        Metrics.setEnabled(true);
+        Config.get().setSendRate(1);
+        long pressed = Metrics.start();
+        queue.offer("m0", false, false, pressed);
+        queue.offer("m1", false, false, pressed);
+        queue.offer("m2", false, false);
+        assertEquals(1, Metrics.SEND_LATENCY.snapshot().count());
+        run(40);
+        // Only messages stamped with a key-press are measured
+        assertEquals(2, Metrics.SEND_LATENCY.snapshot().count());
+    }
+}
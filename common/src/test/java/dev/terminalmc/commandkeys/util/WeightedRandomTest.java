@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedRandomTest {
+    private static final int DRAWS = 40000;
+
+    @Test
+    void followsWeights() {
+        WeightedRandom random = new WeightedRandom(new int[]{1, 3}, 0, new SplittableRandom(1));
+        int ones = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            if (random.next() == 1) ones++;
+        }
+        assertEquals(0.75, (double)ones / DRAWS, 0.02);
+    }
+
+    @Test
+    void followsManyWeights() {
+        int[] weights = new int[100];
+        for (int i = 0; i < weights.length; i++) weights[i] = i + 1;
+        WeightedRandom random = new WeightedRandom(weights, 0, new SplittableRandom(2));
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < DRAWS * 10; i++) counts[random.next()]++;
+        // Top half has weight 3775 of 5050
+        int top = 0;
+        for (int i = 50; i < weights.length; i++) top += counts[i];
+        assertEquals(3775.0 / 5050, (double)top / (DRAWS * 10), 0.01);
+    }
+
+    @Test
+    void windowPreventsBackToBack() {
+        WeightedRandom random = new WeightedRandom(new int[]{1, 1000}, 1, new SplittableRandom(3));
+        int last = random.next();
+        for (int i = 0; i < 1000; i++) {
+            int next = random.next();
+            assertNotEquals(last, next);
+            last = next;
+        }
+    }
+
+    @Test
+    void fullWindowCyclesThroughAll() {
+        int n = 8;
+        int[] weights = {1, 2, 3, 4, 50, 60, 70, 800};
+        WeightedRandom random = new WeightedRandom(weights, n - 1, new SplittableRandom(4));
+        int[] draws = new int[DRAWS];
+        for (int i = 0; i < DRAWS; i++) draws[i] = random.next();
+        for (int i = 0; i + n <= DRAWS; i++) {
+            Set<Integer> window = new HashSet<>();
+            for (int j = i; j < i + n; j++) window.add(draws[j]);
+            assertEquals(n, window.size());
+        }
+    }
+
+    @Test
+    void windowLimitedToSize() {
+        WeightedRandom random = new WeightedRandom(new int[]{5}, 3, new SplittableRandom(5));
+        for (int i = 0; i < 10; i++) assertEquals(0, random.next());
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        SplittableRandom source = new SplittableRandom(6);
+        assertThrows(IllegalArgumentException.class, () -> new WeightedRandom(new int[0], 0, source));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedRandom(new int[]{1, 0}, 0, source));
+    }
+}
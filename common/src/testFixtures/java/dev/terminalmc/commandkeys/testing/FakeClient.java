@@ -0,0 +1,216 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.testing;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.util.GameClient;
+import net.minecraft.client.KeyMapping;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.phys.BlockHitResult;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link GameClient} with a scriptable player, keyboard and clipboard,
+ * which records outgoing messages instead of sending them.
+ */
+public class FakeClient implements GameClient {
+    /**
+     * A message or command sent to the server.
+     * @param tick the tick of {@link FakeClient#tick} when it was sent.
+     * @param message the message, with the leading {@code /} of commands.
+     */
+    public record Sent(long tick, String message) {}
+
+    // Chat sink
+    public final List<Sent> sent = new ArrayList<>();
+    public final List<Component> chat = new ArrayList<>();
+    public final List<String> recentChat = new ArrayList<>();
+    public @Nullable Component overlay = null;
+    public @Nullable String typed = null;
+    /**
+     * If {@code false}, sent messages are only counted, for long runs.
+     */
+    public boolean record = true;
+    public long sentCount = 0;
+    /**
+     * The current tick, maintained by {@link TickDriver}.
+     */
+    public long tick = 0;
+
+    // Game state
+    public boolean screenOpen = false;
+    public boolean singleplayer = false;
+    public boolean hasPlayer = true;
+    public boolean playing = true;
+    public boolean acceptingMessages = true;
+    public final Set<InputConstants.Key> keysDown = new HashSet<>();
+    public KeyMapping[] keyMappings = new KeyMapping[0];
+
+    // Player state
+    public String playerName = "Player";
+    public BlockPos playerPos = new BlockPos(120, 64, -340);
+    public @Nullable BlockPos lookPos = new BlockPos(124, 63, -338);
+    public Vec3 lookAngle = new Vec3(0.8, -0.2, 0.5);
+    public double viewDistance = 12;
+    /**
+     * The distance of the most recent {@link FakeClient#pick}.
+     */
+    public double pickDistance = 0;
+
+    // Text sources
+    public String clipboard = "";
+    public @Nullable String lastCommand = null;
+
+    /**
+     * @return the sent messages, without ticks.
+     */
+    public List<String> sentMessages() {
+        return sent.stream().map(Sent::message).toList();
+    }
+
+    // State
+
+    @Override
+    public boolean isScreenOpen() {
+        return screenOpen;
+    }
+
+    @Override
+    public boolean isInSingleplayer() {
+        return singleplayer;
+    }
+
+    @Override
+    public boolean hasPlayer() {
+        return hasPlayer;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return hasPlayer && playing;
+    }
+
+    @Override
+    public boolean canSendMessages() {
+        return hasPlayer && acceptingMessages;
+    }
+
+    @Override
+    public boolean isKeyDown(InputConstants.Key key) {
+        return keysDown.contains(key);
+    }
+
+    @Override
+    public KeyMapping[] getKeyMappings() {
+        return keyMappings;
+    }
+
+    // Player
+
+    @Override
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    @Override
+    public BlockPos getPlayerBlockPos() {
+        return playerPos;
+    }
+
+    @Override
+    public HitResult pick(double distance) {
+        pickDistance = distance;
+        if (lookPos == null) {
+            return BlockHitResult.miss(playerPos.getCenter(), Direction.UP, playerPos);
+        }
+        return new BlockHitResult(lookPos.getCenter(), Direction.UP, lookPos, false);
+    }
+
+    @Override
+    public double getViewDistance() {
+        return viewDistance;
+    }
+
+    @Override
+    public Vec3 getLookAngle() {
+        return lookAngle;
+    }
+
+    // Text sources
+
+    @Override
+    public String getClipboard() {
+        return clipboard;
+    }
+
+    @Override
+    public @Nullable String getLastSentMessage() {
+        return recentChat.isEmpty() ? null : recentChat.getLast();
+    }
+
+    @Override
+    public @Nullable String getLastCommand() {
+        return lastCommand;
+    }
+
+    // Output
+
+    @Override
+    public void sendChat(String message) {
+        record(message);
+    }
+
+    @Override
+    public void sendCommand(String command) {
+        record("/" + command);
+    }
+
+    @Override
+    public void addRecentChat(String message) {
+        recentChat.add(message);
+        if (message.startsWith("/")) lastCommand = message;
+    }
+
+    @Override
+    public void setOverlayMessage(Component message) {
+        overlay = message;
+    }
+
+    @Override
+    public void addChatMessage(Component message) {
+        chat.add(message);
+    }
+
+    @Override
+    public void openChat(String message) {
+        typed = message;
+    }
+
+    private void record(String message) {
+        sentCount++;
+        if (record) sent.add(new Sent(tick, message));
+    }
+}
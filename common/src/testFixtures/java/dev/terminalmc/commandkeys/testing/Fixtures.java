@@ -0,0 +1,164 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.testing;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.config.Config;
+import dev.terminalmc.commandkeys.config.Macro;
+import dev.terminalmc.commandkeys.config.Message;
+import dev.terminalmc.commandkeys.config.Profile;
+import dev.terminalmc.commandkeys.util.ChatIndex;
+import dev.terminalmc.commandkeys.util.Metrics;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Shared setup for running mod code without the game.
+ */
+public final class Fixtures {
+    /**
+     * Representative messages, covering plain chat, commands, each kind of
+     * placeholder, and multiple messages per key-press.
+     */
+    public static final String[] MESSAGES = {
+            "Hello!",
+            "/home",
+            "/tp %x% %y% %z%",
+            "Meet me at %pos%",
+            "/setblock %lpos% minecraft:stone",
+            "Thanks %#<(\\w+)> %!",
+            "gg,,/spawn",
+            "%myname% is AFK",
+    };
+
+    /**
+     * Keys used by generated macros, with each profile of more than
+     * {@code KEYS.length} macros having several macros per key.
+     */
+    public static final InputConstants.Key[] KEYS = createKeys();
+    public static final InputConstants.Key LIMIT_KEY = key(InputConstants.KEY_LALT);
+
+    private static @Nullable Path configDir = null;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Points the config at a new temporary directory on first use, and
+     * replaces the game client. Must be called before the config is first
+     * used.
+     * @return the new client.
+     */
+    public static synchronized FakeClient install() {
+        if (configDir == null) {
+            try {
+                configDir = Files.createTempDirectory(CommandKeys.MOD_ID + "-test");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.setProperty(CommandKeys.MOD_ID + ".configDir", configDir.toString());
+        }
+        FakeClient client = new FakeClient();
+        CommandKeys.client = client;
+        return client;
+    }
+
+    /**
+     * Installs a new client, and resets the config, the ratelimiter, all
+     * pending and recent messages, and metrics.
+     * @return the new client.
+     */
+    public static FakeClient reset() {
+        FakeClient client = install();
+        Config.resetAndSave();
+        CommandKeys.resetState();
+        ChatIndex.clear();
+        Metrics.setEnabled(false);
+        return client;
+    }
+
+    public static InputConstants.Key key(int keyCode) {
+        return InputConstants.Type.KEYSYM.getOrCreate(keyCode);
+    }
+
+    /**
+     * Replaces the config with one having {@code profiles} additional
+     * profiles of {@code macros} macros each, and activates the first of
+     * them. Every fourth macro also uses {@link Fixtures#LIMIT_KEY}. The
+     * profiles do not use the activation ratelimit.
+     */
+    public static Config createConfig(int profiles, int macros, Macro.SendMode mode) {
+        Config config = Config.resetAndSave();
+        Profile first = null;
+        for (int p = 0; p < profiles; p++) {
+            Profile profile = new Profile("Profile " + p);
+            for (int m = 0; m < macros; m++) {
+                Macro macro = addMacro(profile, mode, KEYS[m % KEYS.length],
+                        MESSAGES[m % MESSAGES.length],
+                        MESSAGES[(m + 1) % MESSAGES.length],
+                        MESSAGES[(m + 2) % MESSAGES.length]);
+                if (m % 4 == 3) profile.setLimitKey(macro, macro.getKeybind(), LIMIT_KEY);
+            }
+            profile.setUseRatelimit(Profile.Control.OFF);
+            config.addProfile(profile);
+            if (first == null) first = profile;
+        }
+        if (first != null) config.activateProfile(first);
+        return config;
+    }
+
+    /**
+     * Adds a macro bound to {@code key} to {@code profile}, with a message
+     * for each of {@code messages}, and applies the behavior controls of the
+     * profile to it.
+     */
+    public static Macro addMacro(Profile profile, Macro.SendMode mode, InputConstants.Key key,
+                                 String... messages) {
+        Macro macro = new Macro();
+        profile.setSendMode(macro, mode);
+        profile.setKey(macro, macro.getKeybind(), key);
+        for (String message : messages) addMessage(macro, message, 0);
+        profile.addMacro(macro);
+        profile.setAddToHistory(macro, macro.getAddToHistory());
+        profile.setShowHudMessage(macro, macro.getShowHudMessage());
+        profile.setResumeRepeating(macro, macro.getResumeRepeating());
+        profile.setUseRatelimit(macro, macro.getUseRatelimit());
+        return macro;
+    }
+
+    public static Message addMessage(Macro macro, String string, int delayTicks) {
+        Message message = new Message();
+        message.string = string;
+        message.delayTicks = delayTicks;
+        macro.addMessage(message);
+        return message;
+    }
+
+    private static InputConstants.Key[] createKeys() {
+        InputConstants.Key[] keys = new InputConstants.Key[26 + 10 + 12];
+        int i = 0;
+        for (int code = InputConstants.KEY_A; code <= InputConstants.KEY_Z; code++) keys[i++] = key(code);
+        for (int code = InputConstants.KEY_0; code <= InputConstants.KEY_9; code++) keys[i++] = key(code);
+        for (int code = InputConstants.KEY_F1; code <= InputConstants.KEY_F12; code++) keys[i++] = key(code);
+        return keys;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 TerminalMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.terminalmc.commandkeys.testing;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import dev.terminalmc.commandkeys.CommandKeys;
+import dev.terminalmc.commandkeys.util.KeybindUtil;
+
+import java.time.Duration;
+
+/**
+ * Advances the mod by whole client ticks, as the game would at the end of
+ * each tick, but as fast as possible and with no other source of time.
+ *
+ * <p>Key-presses happen between ticks, and messages sent during a press or
+ * tick are recorded by the {@link FakeClient} with the current tick.</p>
+ */
+public class TickDriver {
+    public static final int TICKS_PER_SECOND = 20;
+
+    private final FakeClient client;
+    private long tick = 0;
+
+    public TickDriver(FakeClient client) {
+        this.client = client;
+        client.tick = tick;
+    }
+
+    /**
+     * @return the number of ticks run so far.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public void tick() {
+        client.tick = ++tick;
+        CommandKeys.tickMessages();
+    }
+
+    public void run(long ticks) {
+        for (long i = 0; i < ticks; i++) tick();
+    }
+
+    public void run(Duration duration) {
+        run(duration.toMillis() * TICKS_PER_SECOND / 1000);
+    }
+
+    /**
+     * Presses {@code key}, with any keys in {@link FakeClient#keysDown} held.
+     * @return the number of operations to cancel, as for
+     * {@link KeybindUtil#handleKey}.
+     */
+    public int press(InputConstants.Key key) {
+        return KeybindUtil.handleKey(key);
+    }
+}
@@ -17,8 +17,10 @@
 package dev.terminalmc.commandkeys;
 
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 
 public class CommandKeysFabric implements ClientModInitializer {
     @Override
@@ -29,6 +31,13 @@ public class CommandKeysFabric implements ClientModInitializer {
         // Tick events
         ClientTickEvents.END_CLIENT_TICK.register(CommandKeys::onEndTick);
 
+        // Render events
+        HudRenderCallback.EVENT.register((graphics, deltaTracker) ->
+                CommandKeys.onRenderGui(graphics));
+
+        // Lifecycle events
+        ClientLifecycleEvents.CLIENT_STOPPING.register((mc) -> CommandKeys.onShutdown());
+
         // Main initialization
         CommandKeys.init();
     }
@@ -24,7 +24,9 @@ import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.neoforge.client.event.ClientTickEvent;
 import net.neoforged.neoforge.client.event.RegisterKeyMappingsEvent;
+import net.neoforged.neoforge.client.event.RenderGuiEvent;
 import net.neoforged.neoforge.client.gui.IConfigScreenFactory;
+import net.neoforged.neoforge.event.GameShuttingDownEvent;
 
 
 @Mod(value = CommandKeys.MOD_ID, dist = Dist.CLIENT)
@@ -52,5 +54,17 @@ public class CommandKeysNeoForge {
         public static void clientTickEvent(ClientTickEvent.Post event) {
             CommandKeys.onEndTick(Minecraft.getInstance());
         }
+
+        // Render events
+        @SubscribeEvent
+        public static void renderGuiEvent(RenderGuiEvent.Post event) {
+            CommandKeys.onRenderGui(event.getGuiGraphics());
+        }
+
+        // Lifecycle events
+        @SubscribeEvent
+        public static void gameShuttingDownEvent(GameShuttingDownEvent event) {
+            CommandKeys.onShutdown();
+        }
     }
 }